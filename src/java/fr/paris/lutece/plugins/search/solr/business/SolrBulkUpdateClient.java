@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.solr.client.solrj.impl.ConcurrentUpdateHttp2SolrClient;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Client streaming the updates to the Solr server over several connections. The updates are queued and sent asynchronously : the errors are counted, and
+ * {@link #blockUntilFinished()} must be called before checking them.
+ */
+public class SolrBulkUpdateClient extends ConcurrentUpdateHttp2SolrClient
+{
+    private static final long serialVersionUID = 1L;
+
+    private final transient Http2SolrClient _httpClient;
+    private final AtomicInteger _nErrorCount = new AtomicInteger( );
+
+    /**
+     * Creates a new client
+     * 
+     * @param strServerUrl
+     *            the Solr server url
+     * @param httpClient
+     *            the client used to send the updates, closed with this client
+     * @param nQueueSize
+     *            the maximum number of update requests waiting to be sent
+     * @param nThreads
+     *            the number of connections sending the updates
+     */
+    SolrBulkUpdateClient( String strServerUrl, Http2SolrClient httpClient, int nQueueSize, int nThreads )
+    {
+        super( new ConcurrentUpdateHttp2SolrClient.Builder( strServerUrl, httpClient ).withQueueSize( nQueueSize ).withThreadCount( nThreads ) );
+        _httpClient = httpClient;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void handleError( Throwable ex )
+    {
+        _nErrorCount.incrementAndGet( );
+        AppLogService.error( "Error while sending updates to the Solr server", ex );
+    }
+
+    /**
+     * Returns the number of update requests which failed
+     * 
+     * @return the number of errors
+     */
+    public int getErrorCount( )
+    {
+        return _nErrorCount.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close( )
+    {
+        try
+        {
+            super.close( );
+        }
+        finally
+        {
+            _httpClient.close( );
+        }
+    }
+}
@@ -48,6 +48,10 @@ public final class SolrServerService
     private static final String PROPERTY_SOLR_IDLE_TIMEOUT = "solr.idle.timeout";
     private static final String PROPERTY_SOLR_HTTP_BASIC_AUTH_USER = "solr.httpBasicAuthUser";
     private static final String PROPERTY_SOLR_HTTP_BASIC_AUTH_PASSWORD = "solr.httpBasicAuthPassword";
+    private static final String PROPERTY_BULK_QUEUE_SIZE = "solr.indexer.bulk.queueSize";
+    private static final String PROPERTY_BULK_THREADS = "solr.indexer.bulk.threads";
+    private static final int DEFAULT_BULK_QUEUE_SIZE = 10;
+    private static final int DEFAULT_BULK_THREADS = 4;
         
     private static final String SOLR_SERVER_URL = AppPropertiesService.getProperty( PROPERTY_SOLR_SERVER_URL );
     private static final int SOLR_CONNECTION_TIMEOUT = AppPropertiesService.getPropertyInt( PROPERTY_SOLR_TIMEOUT, 60000 );
@@ -97,14 +101,39 @@ public final class SolrServerService
     }
 
     /**
-     * Creates the SolrServer.
+     * Creates a SolrServer with the connection settings of the plugin. The caller must close the SolrServer.
      * 
      * @param strServerUrl
      *            the Solr server url
      * @return the SolrServer.
      */
-    private SolrClient createSolrServer( String strServerUrl )
-    {    	
+    public SolrClient createSolrServer( String strServerUrl )
+    {
+        return createHttp2SolrClient( strServerUrl );
+    }
+
+    /**
+     * Creates a client streaming the updates over several connections, used by the full indexing so that the search requests keep their own client. The
+     * caller must close the client.
+     * 
+     * @return the client
+     */
+    public SolrBulkUpdateClient createBulkUpdateClient( )
+    {
+        return new SolrBulkUpdateClient( SOLR_SERVER_URL, createHttp2SolrClient( SOLR_SERVER_URL ),
+                AppPropertiesService.getPropertyInt( PROPERTY_BULK_QUEUE_SIZE, DEFAULT_BULK_QUEUE_SIZE ),
+                AppPropertiesService.getPropertyInt( PROPERTY_BULK_THREADS, DEFAULT_BULK_THREADS ) );
+    }
+
+    /**
+     * Creates a client with the connection settings of the plugin
+     * 
+     * @param strServerUrl
+     *            the Solr server url
+     * @return the client
+     */
+    private Http2SolrClient createHttp2SolrClient( String strServerUrl )
+    {
     	return new Http2SolrClient.Builder(strServerUrl).connectionTimeout(SOLR_CONNECTION_TIMEOUT).idleTimeout(SOLR_IDLE_TIMEOUT).withBasicAuthCredentials(SOLR_HTTP_BASIC_AUTH_USER, SOLR_HTTP_BASIC_AUTH_PASSWORD).build();
     }
 }
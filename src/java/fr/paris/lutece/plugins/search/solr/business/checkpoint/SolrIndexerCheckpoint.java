@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.checkpoint;
+
+/**
+ *
+ * SolrIndexerCheckpoint : progress of an indexer during a full indexing
+ *
+ */
+public class SolrIndexerCheckpoint
+{
+    private String _strIndexerName;
+    private long _lGeneration;
+    private String _strLastResourceId;
+    private boolean _bCompleted;
+
+    /**
+     *
+     * @return the name of the indexer
+     */
+    public String getIndexerName( )
+    {
+        return _strIndexerName;
+    }
+
+    /**
+     * set the name of the indexer
+     * 
+     * @param strIndexerName
+     *            the name of the indexer
+     */
+    public void setIndexerName( String strIndexerName )
+    {
+        _strIndexerName = strIndexerName;
+    }
+
+    /**
+     *
+     * @return the generation of the full indexing
+     */
+    public long getGeneration( )
+    {
+        return _lGeneration;
+    }
+
+    /**
+     * set the generation of the full indexing
+     * 
+     * @param lGeneration
+     *            the generation of the full indexing
+     */
+    public void setGeneration( long lGeneration )
+    {
+        _lGeneration = lGeneration;
+    }
+
+    /**
+     *
+     * @return the id of the last resource indexed, or null if the indexer has not recorded any
+     */
+    public String getLastResourceId( )
+    {
+        return _strLastResourceId;
+    }
+
+    /**
+     * set the id of the last resource indexed
+     * 
+     * @param strLastResourceId
+     *            the id of the last resource indexed
+     */
+    public void setLastResourceId( String strLastResourceId )
+    {
+        _strLastResourceId = strLastResourceId;
+    }
+
+    /**
+     *
+     * @return true if the indexer has indexed all its resources
+     */
+    public boolean isCompleted( )
+    {
+        return _bCompleted;
+    }
+
+    /**
+     * set whether the indexer has indexed all its resources
+     * 
+     * @param bCompleted
+     *            true if the indexer has indexed all its resources
+     */
+    public void setCompleted( boolean bCompleted )
+    {
+        _bCompleted = bCompleted;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.checkpoint;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for the checkpoints of the full indexing
+ */
+public final class SolrIndexerCheckpointDAO implements ISolrIndexerCheckpointDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO solr_indexer_checkpoint( indexer_name, generation, last_resource_id, completed ) VALUES(?,?,?,?)";
+    private static final String SQL_QUERY_UPDATE = "UPDATE solr_indexer_checkpoint SET generation = ?, last_resource_id = ?, completed = ? WHERE indexer_name = ?";
+    private static final String SQL_QUERY_TRUNCATE = "DELETE FROM solr_indexer_checkpoint ";
+    private static final String SQL_QUERY_SELECT = "SELECT indexer_name, generation, last_resource_id, completed FROM solr_indexer_checkpoint ";
+
+    /**
+     * {@inheritDoc}
+     */
+    public void insert( SolrIndexerCheckpoint checkpoint, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            daoUtil.setString( 1, checkpoint.getIndexerName( ) );
+            daoUtil.setLong( 2, checkpoint.getGeneration( ) );
+            daoUtil.setString( 3, checkpoint.getLastResourceId( ) );
+            daoUtil.setBoolean( 4, checkpoint.isCompleted( ) );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void store( SolrIndexerCheckpoint checkpoint, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+        {
+            daoUtil.setLong( 1, checkpoint.getGeneration( ) );
+            daoUtil.setString( 2, checkpoint.getLastResourceId( ) );
+            daoUtil.setBoolean( 3, checkpoint.isCompleted( ) );
+            daoUtil.setString( 4, checkpoint.getIndexerName( ) );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void deleteAll( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_TRUNCATE, plugin ) )
+        {
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<SolrIndexerCheckpoint> selectList( Plugin plugin )
+    {
+        List<SolrIndexerCheckpoint> listCheckpoints = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                SolrIndexerCheckpoint checkpoint = new SolrIndexerCheckpoint( );
+                checkpoint.setIndexerName( daoUtil.getString( 1 ) );
+                checkpoint.setGeneration( daoUtil.getLong( 2 ) );
+                checkpoint.setLastResourceId( daoUtil.getString( 3 ) );
+                checkpoint.setCompleted( daoUtil.getBoolean( 4 ) );
+                listCheckpoints.add( checkpoint );
+            }
+        }
+
+        return listCheckpoints;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.checkpoint;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.List;
+
+/**
+ * This class provides instances management methods for the checkpoints of the full indexing
+ */
+public final class SolrIndexerCheckpointHome
+{
+    // Static variable pointed at the DAO instance
+    private static ISolrIndexerCheckpointDAO _dao = SpringContextService.getBean( "solrIndexerCheckpointDAO" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SolrIndexerCheckpointHome( )
+    {
+    }
+
+    /**
+     * Creation of the checkpoint of an indexer
+     *
+     * @param checkpoint
+     *            The instance of the SolrIndexerCheckpoint which contains the informations to store
+     * @param plugin
+     *            The plugin
+     */
+    public static void create( SolrIndexerCheckpoint checkpoint, Plugin plugin )
+    {
+        _dao.insert( checkpoint, plugin );
+    }
+
+    /**
+     * Update of the checkpoint of an indexer
+     *
+     * @param checkpoint
+     *            The instance of the SolrIndexerCheckpoint which contains the informations to store
+     * @param plugin
+     *            The plugin
+     */
+    public static void update( SolrIndexerCheckpoint checkpoint, Plugin plugin )
+    {
+        _dao.store( checkpoint, plugin );
+    }
+
+    /**
+     * Remove all the checkpoints
+     *
+     * @param plugin
+     *            The plugin
+     */
+    public static void removeAll( Plugin plugin )
+    {
+        _dao.deleteAll( plugin );
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Finders
+
+    /**
+     * Returns the checkpoints of all the indexers
+     *
+     * @param plugin
+     *            The plugin
+     * @return the list of the checkpoints
+     */
+    public static List<SolrIndexerCheckpoint> getCheckpointsList( Plugin plugin )
+    {
+        return _dao.selectList( plugin );
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.fingerprint;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class provides Data Access methods for the fingerprints of the indexed documents
+ */
+public final class SolrFingerprintDAO implements ISolrFingerprintDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO solr_indexer_fingerprint( uid, fingerprint ) VALUES(?,?)";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM solr_indexer_fingerprint WHERE uid IN ";
+    private static final String SQL_QUERY_TRUNCATE = "DELETE FROM solr_indexer_fingerprint ";
+    private static final String SQL_QUERY_SELECT = "SELECT uid, fingerprint FROM solr_indexer_fingerprint WHERE uid IN ";
+
+    /**
+     * {@inheritDoc}
+     */
+    public void insert( String strUid, String strFingerprint, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            daoUtil.setString( 1, strUid );
+            daoUtil.setString( 2, strFingerprint );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void delete( Collection<String> listUids, Plugin plugin )
+    {
+        if ( listUids.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE + buildInClause( listUids.size( ) ), plugin ) )
+        {
+            int nIndex = 1;
+
+            for ( String strUid : listUids )
+            {
+                daoUtil.setString( nIndex++, strUid );
+            }
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void deleteAll( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_TRUNCATE, plugin ) )
+        {
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, String> selectByUids( Collection<String> listUids, Plugin plugin )
+    {
+        Map<String, String> mapFingerprints = new HashMap<>( );
+
+        if ( listUids.isEmpty( ) )
+        {
+            return mapFingerprints;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT + buildInClause( listUids.size( ) ), plugin ) )
+        {
+            int nIndex = 1;
+
+            for ( String strUid : listUids )
+            {
+                daoUtil.setString( nIndex++, strUid );
+            }
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                mapFingerprints.put( daoUtil.getString( 1 ), daoUtil.getString( 2 ) );
+            }
+        }
+
+        return mapFingerprints;
+    }
+
+    /**
+     * Builds the parameters of an IN clause
+     *
+     * @param nCount
+     *            the number of parameters
+     * @return the IN clause
+     */
+    private static String buildInClause( int nCount )
+    {
+        StringBuilder sbIn = new StringBuilder( "(" );
+
+        for ( int i = 0; i < nCount; i++ )
+        {
+            sbIn.append( ( i == 0 ) ? "?" : ",?" );
+        }
+
+        return sbIn.append( ")" ).toString( );
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.fingerprint;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * This class provides instances management methods for the fingerprints of the indexed documents
+ */
+public final class SolrFingerprintHome
+{
+    // Static variable pointed at the DAO instance
+    private static ISolrFingerprintDAO _dao = SpringContextService.getBean( "solrFingerprintDAO" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SolrFingerprintHome( )
+    {
+    }
+
+    /**
+     * Store the fingerprints of documents, replacing the previous ones
+     *
+     * @param mapFingerprints
+     *            the fingerprints, by uid
+     * @param plugin
+     *            The plugin
+     */
+    public static void store( Map<String, String> mapFingerprints, Plugin plugin )
+    {
+        _dao.delete( mapFingerprints.keySet( ), plugin );
+
+        for ( Map.Entry<String, String> fingerprint : mapFingerprints.entrySet( ) )
+        {
+            _dao.insert( fingerprint.getKey( ), fingerprint.getValue( ), plugin );
+        }
+    }
+
+    /**
+     * Remove the fingerprints of documents
+     *
+     * @param listUids
+     *            the uids of the documents
+     * @param plugin
+     *            The plugin
+     */
+    public static void remove( Collection<String> listUids, Plugin plugin )
+    {
+        _dao.delete( listUids, plugin );
+    }
+
+    /**
+     * Remove all the fingerprints
+     *
+     * @param plugin
+     *            The plugin
+     */
+    public static void removeAll( Plugin plugin )
+    {
+        _dao.deleteAll( plugin );
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Finders
+
+    /**
+     * Returns the fingerprints of documents
+     *
+     * @param listUids
+     *            the uids of the documents
+     * @param plugin
+     *            The plugin
+     * @return the fingerprints of the documents which have one, by uid
+     */
+    public static Map<String, String> findByUids( Collection<String> listUids, Plugin plugin )
+    {
+        return _dao.selectByUids( listUids, plugin );
+    }
+}
@@ -36,6 +36,7 @@ package fr.paris.lutece.plugins.search.solr.business.indexeraction;
 import fr.paris.lutece.portal.business.indexeraction.IndexerActionFilter;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 /**
@@ -94,6 +95,32 @@ public interface ISolrIndexerActionDAO
      */
     void deleteAll( Plugin plugin );
 
+    /**
+     * Delete the records of a resource for a portlet
+     * 
+     * @param strIdDocument
+     *            the identifier of the resource
+     * @param strTypeResource
+     *            the type of the resource
+     * @param nIdPortlet
+     *            the identifier of the portlet
+     * @param plugin
+     *            the plugin
+     */
+    void deleteByResource( String strIdDocument, String strTypeResource, int nIdPortlet, Plugin plugin );
+
+    /**
+     * Delete the records of a resource for all the portlets
+     * 
+     * @param strIdDocument
+     *            the identifier of the resource
+     * @param strTypeResource
+     *            the type of the resource
+     * @param plugin
+     *            the plugin
+     */
+    void deleteByResource( String strIdDocument, String strTypeResource, Plugin plugin );
+
     /**
      * Update the indexerAction in the table
      *
@@ -123,4 +150,22 @@ public interface ISolrIndexerActionDAO
      * @return The List which contains the data of all action
      */
     List<SolrIndexerAction> selectList( Plugin plugin );
+
+    /**
+     * Claim a page of the actions ready to be processed : the actions which are not leased by another node, or whose lease has expired, and which are not
+     * waiting for a retry. Each action is leased with a conditional update, so that an action cannot be claimed by two nodes.
+     * 
+     * @param strOwner
+     *            the owner of the lease, unique for each claim
+     * @param dateNow
+     *            the current date
+     * @param dateLeaseExpiry
+     *            the date of expiry of the lease
+     * @param nMaxCount
+     *            the maximum number of actions to claim
+     * @param plugin
+     *            the plugin
+     * @return the claimed actions, ordered by creation
+     */
+    List<SolrIndexerAction> claim( String strOwner, Timestamp dateNow, Timestamp dateLeaseExpiry, int nMaxCount, Plugin plugin );
 }
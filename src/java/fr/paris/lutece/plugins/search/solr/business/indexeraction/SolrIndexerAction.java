@@ -35,6 +35,8 @@ package fr.paris.lutece.plugins.search.solr.business.indexeraction;
 
 import fr.paris.lutece.portal.business.indexeraction.IndexerAction;
 
+import java.sql.Timestamp;
+
 /**
  *
  * SolrIndexerAction
@@ -43,6 +45,9 @@ import fr.paris.lutece.portal.business.indexeraction.IndexerAction;
 public class SolrIndexerAction extends IndexerAction
 {
     private String _strTypeResource;
+    private int _nAttempts;
+    private Timestamp _dateNextAttempt;
+    private String _strLastError;
 
     /**
      *
@@ -63,4 +68,64 @@ public class SolrIndexerAction extends IndexerAction
     {
         _strTypeResource = strTypeResource;
     }
+
+    /**
+     *
+     * @return the number of failed attempts to process the action
+     */
+    public int getAttempts( )
+    {
+        return _nAttempts;
+    }
+
+    /**
+     * set the number of failed attempts to process the action
+     * 
+     * @param nAttempts
+     *            the number of failed attempts
+     */
+    public void setAttempts( int nAttempts )
+    {
+        _nAttempts = nAttempts;
+    }
+
+    /**
+     *
+     * @return the date before which the action must not be processed again, or null if it has never failed
+     */
+    public Timestamp getDateNextAttempt( )
+    {
+        return _dateNextAttempt;
+    }
+
+    /**
+     * set the date before which the action must not be processed again
+     * 
+     * @param dateNextAttempt
+     *            the date of the next attempt
+     */
+    public void setDateNextAttempt( Timestamp dateNextAttempt )
+    {
+        _dateNextAttempt = dateNextAttempt;
+    }
+
+    /**
+     *
+     * @return the error of the last failed attempt
+     */
+    public String getLastError( )
+    {
+        return _strLastError;
+    }
+
+    /**
+     * set the error of the last failed attempt
+     * 
+     * @param strLastError
+     *            the error
+     */
+    public void setLastError( String strLastError )
+    {
+        _strLastError = strLastError;
+    }
 }
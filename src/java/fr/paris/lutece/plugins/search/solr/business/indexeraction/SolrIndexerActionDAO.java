@@ -37,7 +37,9 @@ import fr.paris.lutece.portal.business.indexeraction.IndexerActionFilter;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -49,15 +51,27 @@ public final class SolrIndexerActionDAO implements ISolrIndexerActionDAO
     public static final String CONSTANT_WHERE = " WHERE ";
     public static final String CONSTANT_AND = " AND ";
     private static final String SQL_QUERY_NEW_PK = "SELECT max( id_action ) FROM solr_indexer_action";
-    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_action,id_document,id_task,type_ressource, id_portlet"
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_action,id_document,id_task,type_ressource, id_portlet,attempts,next_attempt,last_error"
             + " FROM solr_indexer_action WHERE id_action = ?";
     private static final String SQL_QUERY_INSERT = "INSERT INTO solr_indexer_action( id_action,id_document,id_task ,type_ressource,id_portlet)"
             + " VALUES(?,?,?,?,?)";
     private static final String SQL_QUERY_DELETE = "DELETE FROM solr_indexer_action WHERE id_action = ? ";
     private static final String SQL_QUERY_TRUNCATE = "DELETE FROM solr_indexer_action  ";
-    private static final String SQL_QUERY_UPDATE = "UPDATE solr_indexer_action SET id_action=?,id_document=?,id_task=?,type_ressource=?,id_portlet=? WHERE id_action = ? ";
-    private static final String SQL_QUERY_SELECT = "SELECT id_action,id_document,id_task,type_ressource,id_portlet" + " FROM solr_indexer_action  ";
+    private static final String SQL_QUERY_UPDATE = "UPDATE solr_indexer_action SET id_action=?,id_document=?,id_task=?,type_ressource=?,id_portlet=?,attempts=?,next_attempt=?,last_error=? WHERE id_action = ? ";
+    private static final String SQL_QUERY_SELECT = "SELECT id_action,id_document,id_task,type_ressource,id_portlet,attempts,next_attempt,last_error"
+            + " FROM solr_indexer_action  ";
     private static final String SQL_FILTER_ID_TASK = " id_task = ? ";
+    private static final String SQL_ORDER_BY_ID_ACTION = " ORDER BY id_action ";
+    private static final String SQL_QUERY_DELETE_BY_RESOURCE = "DELETE FROM solr_indexer_action WHERE id_document = ? AND type_ressource = ? ";
+    private static final String SQL_FILTER_ID_PORTLET = " AND id_portlet = ? ";
+    private static final String SQL_QUERY_SELECT_CLAIMABLE = "SELECT id_action FROM solr_indexer_action"
+            + " WHERE ( lease_expiry IS NULL OR lease_expiry < ? ) AND ( next_attempt IS NULL OR next_attempt <= ? ) ORDER BY id_action LIMIT ? ";
+    private static final String SQL_QUERY_CLAIM = "UPDATE solr_indexer_action SET lease_owner = ?, lease_expiry = ?"
+            + " WHERE ( lease_expiry IS NULL OR lease_expiry < ? ) AND id_action IN ( ";
+    private static final String SQL_FILTER_LEASE_OWNER = " lease_owner = ? ";
+    private static final String CONSTANT_PARAMETER = "?";
+    private static final String CONSTANT_COMMA = ",";
+    private static final String CONSTANT_CLOSE_PARENTHESIS = " )";
 
     /**
      * {@inheritDoc}
@@ -116,6 +130,9 @@ public final class SolrIndexerActionDAO implements ISolrIndexerActionDAO
                 indexerAction.setIdTask( daoUtil.getInt( ++i ) );
                 indexerAction.setTypeResource( daoUtil.getString( ++i ) );
                 indexerAction.setIdPortlet( daoUtil.getInt( ++i ) );
+                indexerAction.setAttempts( daoUtil.getInt( ++i ) );
+                indexerAction.setDateNextAttempt( daoUtil.getTimestamp( ++i ) );
+                indexerAction.setLastError( daoUtil.getString( ++i ) );
             }
         }
         return indexerAction;
@@ -144,6 +161,33 @@ public final class SolrIndexerActionDAO implements ISolrIndexerActionDAO
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void deleteByResource( String strIdDocument, String strTypeResource, int nIdPortlet, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_RESOURCE + SQL_FILTER_ID_PORTLET, plugin ) )
+        {
+            daoUtil.setString( 1, strIdDocument );
+            daoUtil.setString( 2, strTypeResource );
+            daoUtil.setInt( 3, nIdPortlet );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void deleteByResource( String strIdDocument, String strTypeResource, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_RESOURCE, plugin ) )
+        {
+            daoUtil.setString( 1, strIdDocument );
+            daoUtil.setString( 2, strTypeResource );
+            daoUtil.executeUpdate( );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -157,6 +201,9 @@ public final class SolrIndexerActionDAO implements ISolrIndexerActionDAO
             daoUtil.setInt( ++i, indexerAction.getIdTask( ) );
             daoUtil.setString( ++i, indexerAction.getTypeResource( ) );
             daoUtil.setInt( ++i, indexerAction.getIdPortlet( ) );
+            daoUtil.setInt( ++i, indexerAction.getAttempts( ) );
+            daoUtil.setTimestamp( ++i, indexerAction.getDateNextAttempt( ) );
+            daoUtil.setString( ++i, indexerAction.getLastError( ) );
             daoUtil.setInt( ++i, indexerAction.getIdAction( ) );
 
             daoUtil.executeUpdate( );
@@ -176,7 +223,7 @@ public final class SolrIndexerActionDAO implements ISolrIndexerActionDAO
             listStrFilter.add( SQL_FILTER_ID_TASK );
         }
 
-        String strSQL = buildRequestWithFilter( SQL_QUERY_SELECT, listStrFilter, null );
+        String strSQL = buildRequestWithFilter( SQL_QUERY_SELECT, listStrFilter, SQL_ORDER_BY_ID_ACTION );
 
         try ( DAOUtil daoUtil = new DAOUtil( strSQL, plugin ) )
         {
@@ -198,6 +245,9 @@ public final class SolrIndexerActionDAO implements ISolrIndexerActionDAO
                 indexerAction.setIdTask( daoUtil.getInt( ++i ) );
                 indexerAction.setTypeResource( daoUtil.getString( ++i ) );
                 indexerAction.setIdPortlet( daoUtil.getInt( ++i ) );
+                indexerAction.setAttempts( daoUtil.getInt( ++i ) );
+                indexerAction.setDateNextAttempt( daoUtil.getTimestamp( ++i ) );
+                indexerAction.setLastError( daoUtil.getString( ++i ) );
                 indexerActionList.add( indexerAction );
             }
         }
@@ -210,9 +260,85 @@ public final class SolrIndexerActionDAO implements ISolrIndexerActionDAO
     public List<SolrIndexerAction> selectList( Plugin plugin )
     {
         List<SolrIndexerAction> indexerActionList = new ArrayList<>( );
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT + SQL_ORDER_BY_ID_ACTION, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                int i = 0;
+                SolrIndexerAction indexerAction = new SolrIndexerAction( );
+                indexerAction.setIdAction( daoUtil.getInt( ++i ) );
+                indexerAction.setIdDocument( daoUtil.getString( ++i ) );
+                indexerAction.setIdTask( daoUtil.getInt( ++i ) );
+                indexerAction.setTypeResource( daoUtil.getString( ++i ) );
+                indexerAction.setIdPortlet( daoUtil.getInt( ++i ) );
+                indexerAction.setAttempts( daoUtil.getInt( ++i ) );
+                indexerAction.setDateNextAttempt( daoUtil.getTimestamp( ++i ) );
+                indexerAction.setLastError( daoUtil.getString( ++i ) );
+                indexerActionList.add( indexerAction );
+            }
+        }
+        return indexerActionList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<SolrIndexerAction> claim( String strOwner, Timestamp dateNow, Timestamp dateLeaseExpiry, int nMaxCount, Plugin plugin )
+    {
+        List<Integer> listIdActions = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_CLAIMABLE, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, dateNow );
+            daoUtil.setTimestamp( 2, dateNow );
+            daoUtil.setInt( 3, nMaxCount );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listIdActions.add( daoUtil.getInt( 1 ) );
+            }
+        }
+
+        if ( listIdActions.isEmpty( ) )
+        {
+            return Collections.emptyList( );
+        }
+
+        // the lease condition is checked again by the update : the actions claimed meanwhile by another node are left out
+        StringBuilder sbSQL = new StringBuilder( SQL_QUERY_CLAIM );
+
+        for ( int i = 0; i < listIdActions.size( ); i++ )
+        {
+            sbSQL.append( ( i == 0 ) ? CONSTANT_PARAMETER : ( CONSTANT_COMMA + CONSTANT_PARAMETER ) );
+        }
+
+        sbSQL.append( CONSTANT_CLOSE_PARENTHESIS );
+
+        try ( DAOUtil daoUtil = new DAOUtil( sbSQL.toString( ), plugin ) )
+        {
+            int nIndex = 0;
+            daoUtil.setString( ++nIndex, strOwner );
+            daoUtil.setTimestamp( ++nIndex, dateLeaseExpiry );
+            daoUtil.setTimestamp( ++nIndex, dateNow );
+
+            for ( Integer nIdAction : listIdActions )
+            {
+                daoUtil.setInt( ++nIndex, nIdAction );
+            }
+
+            daoUtil.executeUpdate( );
+        }
+
+        List<SolrIndexerAction> indexerActionList = new ArrayList<>( );
+        String strSQL = buildRequestWithFilter( SQL_QUERY_SELECT, Collections.singletonList( SQL_FILTER_LEASE_OWNER ), SQL_ORDER_BY_ID_ACTION );
+
+        try ( DAOUtil daoUtil = new DAOUtil( strSQL, plugin ) )
         {
+            daoUtil.setString( 1, strOwner );
             daoUtil.executeQuery( );
+
             while ( daoUtil.next( ) )
             {
                 int i = 0;
@@ -222,6 +348,9 @@ public final class SolrIndexerActionDAO implements ISolrIndexerActionDAO
                 indexerAction.setIdTask( daoUtil.getInt( ++i ) );
                 indexerAction.setTypeResource( daoUtil.getString( ++i ) );
                 indexerAction.setIdPortlet( daoUtil.getInt( ++i ) );
+                indexerAction.setAttempts( daoUtil.getInt( ++i ) );
+                indexerAction.setDateNextAttempt( daoUtil.getTimestamp( ++i ) );
+                indexerAction.setLastError( daoUtil.getString( ++i ) );
                 indexerActionList.add( indexerAction );
             }
         }
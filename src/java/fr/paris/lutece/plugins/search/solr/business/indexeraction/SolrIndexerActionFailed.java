@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.indexeraction;
+
+import java.sql.Timestamp;
+
+/**
+ *
+ * SolrIndexerActionFailed : an action given up after too many failed attempts, kept to be replayed or purged by an administrator
+ *
+ */
+public class SolrIndexerActionFailed extends SolrIndexerAction
+{
+    private int _nIdActionFailed;
+    private Timestamp _dateFailure;
+
+    /**
+     *
+     * @return the identifier of the failed action
+     */
+    public int getIdActionFailed( )
+    {
+        return _nIdActionFailed;
+    }
+
+    /**
+     * set the identifier of the failed action
+     * 
+     * @param nIdActionFailed
+     *            the identifier
+     */
+    public void setIdActionFailed( int nIdActionFailed )
+    {
+        _nIdActionFailed = nIdActionFailed;
+    }
+
+    /**
+     *
+     * @return the date of the last failed attempt
+     */
+    public Timestamp getDateFailure( )
+    {
+        return _dateFailure;
+    }
+
+    /**
+     * set the date of the last failed attempt
+     * 
+     * @param dateFailure
+     *            the date
+     */
+    public void setDateFailure( Timestamp dateFailure )
+    {
+        _dateFailure = dateFailure;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.indexeraction;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for the failed indexer actions
+ */
+public final class SolrIndexerActionFailedDAO implements ISolrIndexerActionFailedDAO
+{
+    // Constants
+    private static final String SQL_QUERY_NEW_PK = "SELECT max( id_action_failed ) FROM solr_indexer_action_failed";
+    private static final String SQL_QUERY_SELECT = "SELECT id_action_failed,id_document,id_task,type_ressource,id_portlet,attempts,last_error,date_failure"
+            + " FROM solr_indexer_action_failed ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = SQL_QUERY_SELECT + " WHERE id_action_failed = ? ";
+    private static final String SQL_QUERY_SELECT_ALL = SQL_QUERY_SELECT + " ORDER BY id_action_failed DESC LIMIT ? ";
+    private static final String SQL_QUERY_COUNT = "SELECT count(*) FROM solr_indexer_action_failed ";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO solr_indexer_action_failed( id_action_failed,id_document,id_task,type_ressource,id_portlet,attempts,last_error,date_failure)"
+            + " VALUES(?,?,?,?,?,?,?,?)";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM solr_indexer_action_failed WHERE id_action_failed = ? ";
+    private static final String SQL_QUERY_TRUNCATE = "DELETE FROM solr_indexer_action_failed ";
+
+    /**
+     * Generates a new primary key
+     *
+     * @param plugin
+     *            the plugin
+     * @return The new primary key
+     */
+    private int newPrimaryKey( Plugin plugin )
+    {
+        int nKey = 1;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_NEW_PK, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nKey = daoUtil.getInt( 1 ) + 1;
+            }
+        }
+        return nKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void insert( SolrIndexerActionFailed actionFailed, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            int i = 0;
+            actionFailed.setIdActionFailed( newPrimaryKey( plugin ) );
+            daoUtil.setInt( ++i, actionFailed.getIdActionFailed( ) );
+            daoUtil.setString( ++i, actionFailed.getIdDocument( ) );
+            daoUtil.setInt( ++i, actionFailed.getIdTask( ) );
+            daoUtil.setString( ++i, actionFailed.getTypeResource( ) );
+            daoUtil.setInt( ++i, actionFailed.getIdPortlet( ) );
+            daoUtil.setInt( ++i, actionFailed.getAttempts( ) );
+            daoUtil.setString( ++i, actionFailed.getLastError( ) );
+            daoUtil.setTimestamp( ++i, actionFailed.getDateFailure( ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SolrIndexerActionFailed load( int nId, Plugin plugin )
+    {
+        SolrIndexerActionFailed actionFailed = null;
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, plugin ) )
+        {
+            daoUtil.setInt( 1, nId );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                actionFailed = dataToObject( daoUtil );
+            }
+        }
+        return actionFailed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void delete( int nId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nId );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void deleteAll( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_TRUNCATE, plugin ) )
+        {
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<SolrIndexerActionFailed> selectList( int nMaxCount, Plugin plugin )
+    {
+        List<SolrIndexerActionFailed> listActionsFailed = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ALL, plugin ) )
+        {
+            daoUtil.setInt( 1, nMaxCount );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listActionsFailed.add( dataToObject( daoUtil ) );
+            }
+        }
+        return listActionsFailed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int selectCount( Plugin plugin )
+    {
+        int nCount = 0;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nCount = daoUtil.getInt( 1 );
+            }
+        }
+        return nCount;
+    }
+
+    /**
+     * Build a failed action from the current row
+     * 
+     * @param daoUtil
+     *            the DAOUtil positioned on the row
+     * @return the failed action
+     */
+    private SolrIndexerActionFailed dataToObject( DAOUtil daoUtil )
+    {
+        int i = 0;
+        SolrIndexerActionFailed actionFailed = new SolrIndexerActionFailed( );
+        actionFailed.setIdActionFailed( daoUtil.getInt( ++i ) );
+        actionFailed.setIdDocument( daoUtil.getString( ++i ) );
+        actionFailed.setIdTask( daoUtil.getInt( ++i ) );
+        actionFailed.setTypeResource( daoUtil.getString( ++i ) );
+        actionFailed.setIdPortlet( daoUtil.getInt( ++i ) );
+        actionFailed.setAttempts( daoUtil.getInt( ++i ) );
+        actionFailed.setLastError( daoUtil.getString( ++i ) );
+        actionFailed.setDateFailure( daoUtil.getTimestamp( ++i ) );
+
+        return actionFailed;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.indexeraction;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.List;
+
+/**
+ * This class provides instances management methods (create, find, ...) for the failed indexer actions
+ */
+public final class SolrIndexerActionFailedHome
+{
+    // Static variable pointed at the DAO instance
+    private static ISolrIndexerActionFailedDAO _dao = SpringContextService.getBean( "solrIndexerActionFailedDAO" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SolrIndexerActionFailedHome( )
+    {
+    }
+
+    /**
+     * Creation of a failed action
+     *
+     * @param actionFailed
+     *            The failed action
+     * @param plugin
+     *            The plugin
+     */
+    public static void create( SolrIndexerActionFailed actionFailed, Plugin plugin )
+    {
+        _dao.insert( actionFailed, plugin );
+    }
+
+    /**
+     * Remove the failed action whose identifier is specified in parameter
+     *
+     * @param nId
+     *            The identifier of the failed action
+     * @param plugin
+     *            The plugin
+     */
+    public static void remove( int nId, Plugin plugin )
+    {
+        _dao.delete( nId, plugin );
+    }
+
+    /**
+     * Remove all the failed actions
+     *
+     * @param plugin
+     *            The plugin
+     */
+    public static void removeAll( Plugin plugin )
+    {
+        _dao.deleteAll( plugin );
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Finders
+
+    /**
+     * Returns the failed action whose identifier is specified in parameter
+     *
+     * @param nKey
+     *            The identifier of the failed action
+     * @param plugin
+     *            The plugin
+     * @return the failed action, or null
+     */
+    public static SolrIndexerActionFailed findByPrimaryKey( int nKey, Plugin plugin )
+    {
+        return _dao.load( nKey, plugin );
+    }
+
+    /**
+     * Loads the most recent failed actions
+     *
+     * @param nMaxCount
+     *            the maximum number of actions to load
+     * @param plugin
+     *            The plugin
+     * @return the failed actions, most recent first
+     */
+    public static List<SolrIndexerActionFailed> getList( int nMaxCount, Plugin plugin )
+    {
+        return _dao.selectList( nMaxCount, plugin );
+    }
+
+    /**
+     * Count the failed actions
+     *
+     * @param plugin
+     *            The plugin
+     * @return the number of failed actions
+     */
+    public static int getCount( Plugin plugin )
+    {
+        return _dao.selectCount( plugin );
+    }
+}
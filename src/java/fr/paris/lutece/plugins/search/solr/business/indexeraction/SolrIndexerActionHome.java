@@ -33,10 +33,15 @@
  */
 package fr.paris.lutece.plugins.search.solr.business.indexeraction;
 
+import fr.paris.lutece.portal.business.indexeraction.IndexerAction;
 import fr.paris.lutece.portal.business.indexeraction.IndexerActionFilter;
 import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.search.IndexationService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.util.sql.TransactionManager;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 /**
@@ -55,7 +60,9 @@ public final class SolrIndexerActionHome
     }
 
     /**
-     * Creation of an instance of Indexer Action
+     * Creation of an instance of Indexer Action. Only the last task of a resource is kept : the pending actions of the same resource and portlet are removed,
+     * and a deletion of the resource for all the portlets removes the pending actions of every portlet. The removal and the creation are done in a single
+     * transaction, so that concurrent creations for the same resource cannot both keep their action.
      *
      * @param indexerAction
      *            The instance of the indexer action which contains the informations to store
@@ -64,7 +71,28 @@ public final class SolrIndexerActionHome
      */
     public static void create( SolrIndexerAction indexerAction, Plugin plugin )
     {
-        _dao.insert( indexerAction, plugin );
+        TransactionManager.beginTransaction( plugin );
+
+        try
+        {
+            if ( ( indexerAction.getIdTask( ) == IndexerAction.TASK_DELETE ) && ( indexerAction.getIdPortlet( ) == IndexationService.ALL_DOCUMENT ) )
+            {
+                _dao.deleteByResource( indexerAction.getIdDocument( ), indexerAction.getTypeResource( ), plugin );
+            }
+            else
+            {
+                _dao.deleteByResource( indexerAction.getIdDocument( ), indexerAction.getTypeResource( ), indexerAction.getIdPortlet( ), plugin );
+            }
+
+            _dao.insert( indexerAction, plugin );
+            TransactionManager.commitTransaction( plugin );
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( plugin );
+
+            throw new AppException( e.getMessage( ), e );
+        }
     }
 
     /**
@@ -140,10 +168,31 @@ public final class SolrIndexerActionHome
      *
      * @param plugin
      *            The plugin
-     * @return the list which contains the data of all the indexerAction
+     * @return the list which contains the data of all the indexerAction, ordered by creation
      */
     public static List<SolrIndexerAction> getList( Plugin plugin )
     {
         return _dao.selectList( plugin );
     }
+
+    /**
+     * Claim a page of the actions ready to be processed, so that the other nodes of the cluster do not process them until the lease expires. The processed
+     * actions must be removed, the failed ones are postponed.
+     *
+     * @param strOwner
+     *            the owner of the lease, unique for each claim
+     * @param nMaxCount
+     *            the maximum number of actions to claim
+     * @param lLeaseDuration
+     *            the duration of the lease in milliseconds
+     * @param plugin
+     *            The plugin
+     * @return the claimed actions, ordered by creation
+     */
+    public static List<SolrIndexerAction> claim( String strOwner, int nMaxCount, long lLeaseDuration, Plugin plugin )
+    {
+        long lNow = System.currentTimeMillis( );
+
+        return _dao.claim( strOwner, new Timestamp( lNow ), new Timestamp( lNow + lLeaseDuration ), nMaxCount, plugin );
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.util.List;
+
+/**
+ * Indexer producing its items as a stream. The items are written to a sink as they are produced instead of being collected in a list before being indexed.
+ * Indexers only implementing {@link SolrIndexer} keep working : they still call {@link SolrIndexerService#write(java.util.Collection)}, which goes through
+ * the same sink.
+ */
+public interface ISolrStreamingIndexer extends SolrIndexer
+{
+    /**
+     * Index all solr documents from the plugin, writing each item to the sink as soon as it is produced
+     *
+     * @param sink
+     *            the sink receiving the items
+     * @return A list of error messages or null if there is no error
+     */
+    List<String> indexDocuments( ISolrItemSink sink );
+
+    /**
+     * Resume the indexing of an interrupted full indexing, after the last resource recorded by {@link ISolrItemSink#checkpoint(String)}. Indexers which
+     * cannot resume index all their documents again.
+     *
+     * @param sink
+     *            the sink receiving the items
+     * @param strLastResourceId
+     *            the id of the last resource recorded, or null to index all the documents
+     * @return A list of error messages or null if there is no error
+     */
+    default List<String> indexDocuments( ISolrItemSink sink, String strLastResourceId )
+    {
+        return indexDocuments( sink );
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * SolrCommitPolicy : tells how the documents sent to the Solr server are made visible to the searches
+ *
+ */
+public enum SolrCommitPolicy
+{
+    /**
+     * A hard commit each time the documents sent must be visible
+     */
+    HARD,
+
+    /**
+     * A soft commit each time the documents sent must be visible. The Solr server autoCommit configuration flushes them to the disk.
+     */
+    SOFT,
+
+    /**
+     * No explicit commit, the documents are sent with a commitWithin delay
+     */
+    WITHIN,
+
+    /**
+     * A single hard commit at the end of the indexing run
+     */
+    END;
+
+    private static final String PROPERTY_COMMIT_POLICY = "solr.indexer.commit.policy";
+    private static final String PROPERTY_COMMIT_WITHIN = "solr.indexer.commit.within";
+    private static final int DEFAULT_COMMIT_WITHIN = 10000;
+    private static final int NO_COMMIT_WITHIN = -1;
+
+    /**
+     * Returns the configured commit policy
+     *
+     * @return the commit policy, HARD if the property is missing or unknown
+     */
+    public static SolrCommitPolicy getPolicy( )
+    {
+        String strPolicy = AppPropertiesService.getProperty( PROPERTY_COMMIT_POLICY, HARD.name( ) );
+
+        for ( SolrCommitPolicy policy : values( ) )
+        {
+            if ( policy.name( ).equalsIgnoreCase( strPolicy.trim( ) ) )
+            {
+                return policy;
+            }
+        }
+
+        return HARD;
+    }
+
+    /**
+     * Returns the commitWithin delay to send with the documents
+     *
+     * @return the delay in milliseconds, or -1 if the documents are committed explicitly
+     */
+    public int getCommitWithin( )
+    {
+        if ( this == WITHIN )
+        {
+            return AppPropertiesService.getPropertyInt( PROPERTY_COMMIT_WITHIN, DEFAULT_COMMIT_WITHIN );
+        }
+
+        return NO_COMMIT_WITHIN;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+
+/**
+ *
+ * SolrDocumentBatch : documents waiting to be sent to the Solr server in a single request
+ *
+ */
+public class SolrDocumentBatch
+{
+    private static final int DEFAULT_VALUE_SIZE = 16;
+
+    private final int _nMaxSize;
+    private final long _lMaxBytes;
+    private final List<SolrItem> _listItems = new ArrayList<>( );
+    private final List<SolrInputDocument> _listDocuments = new ArrayList<>( );
+    private long _lBytes;
+
+    /**
+     * Creates a new batch
+     *
+     * @param nMaxSize
+     *            the maximum number of documents of the batch
+     * @param lMaxBytes
+     *            the maximum estimated size of the batch in bytes
+     */
+    public SolrDocumentBatch( int nMaxSize, long lMaxBytes )
+    {
+        _nMaxSize = Math.max( nMaxSize, 1 );
+        _lMaxBytes = lMaxBytes;
+    }
+
+    /**
+     * Add a document to the batch
+     *
+     * @param solrItem
+     *            the item the document was built from
+     * @param solrInputDocument
+     *            the document
+     */
+    public void add( SolrItem solrItem, SolrInputDocument solrInputDocument )
+    {
+        _listItems.add( solrItem );
+        _listDocuments.add( solrInputDocument );
+        _lBytes += estimateSize( solrInputDocument );
+    }
+
+    /**
+     * Tells whether the batch must be sent
+     *
+     * @return true if the maximum number of documents or the maximum size is reached
+     */
+    public boolean isFull( )
+    {
+        return ( _listDocuments.size( ) >= _nMaxSize ) || ( ( _lMaxBytes > 0 ) && ( _lBytes >= _lMaxBytes ) );
+    }
+
+    /**
+     * Tells whether the batch is empty
+     *
+     * @return true if the batch contains no document
+     */
+    public boolean isEmpty( )
+    {
+        return _listDocuments.isEmpty( );
+    }
+
+    /**
+     * Returns the items of the batch
+     *
+     * @return the items, in the same order as the documents
+     */
+    public List<SolrItem> getItems( )
+    {
+        return _listItems;
+    }
+
+    /**
+     * Returns the documents of the batch
+     *
+     * @return the documents
+     */
+    public List<SolrInputDocument> getDocuments( )
+    {
+        return _listDocuments;
+    }
+
+    /**
+     * Returns the estimated size of the batch
+     *
+     * @return the estimated size in bytes
+     */
+    public long getBytes( )
+    {
+        return _lBytes;
+    }
+
+    /**
+     * Remove all the documents of the batch
+     */
+    public void clear( )
+    {
+        _listItems.clear( );
+        _listDocuments.clear( );
+        _lBytes = 0;
+    }
+
+    /**
+     * Estimate the size of a document once sent to the Solr server
+     *
+     * @param solrInputDocument
+     *            the document
+     * @return the estimated size in bytes
+     */
+    public static long estimateSize( SolrInputDocument solrInputDocument )
+    {
+        long lSize = 0;
+
+        for ( SolrInputField field : solrInputDocument )
+        {
+            lSize += field.getName( ).length( );
+            lSize += estimateValueSize( field.getValue( ) );
+        }
+
+        if ( solrInputDocument.hasChildDocuments( ) )
+        {
+            for ( SolrInputDocument child : solrInputDocument.getChildDocuments( ) )
+            {
+                lSize += estimateSize( child );
+            }
+        }
+
+        return lSize;
+    }
+
+    /**
+     * Estimate the size of a field value
+     *
+     * @param value
+     *            the value
+     * @return the estimated size in bytes
+     */
+    private static long estimateValueSize( Object value )
+    {
+        if ( value == null )
+        {
+            return 0;
+        }
+
+        if ( value instanceof CharSequence )
+        {
+            return ( (CharSequence) value ).length( );
+        }
+
+        if ( value instanceof SolrInputDocument )
+        {
+            return estimateSize( (SolrInputDocument) value );
+        }
+
+        if ( value instanceof Collection )
+        {
+            long lSize = 0;
+
+            for ( Object item : (Collection<?>) value )
+            {
+                lSize += estimateValueSize( item );
+            }
+
+            return lSize;
+        }
+
+        return DEFAULT_VALUE_SIZE;
+    }
+}
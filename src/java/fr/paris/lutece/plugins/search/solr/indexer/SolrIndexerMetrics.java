@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * SolrIndexerMetrics : counters and times of the last indexing run of an indexer. The stages of the pipeline update them from their own threads.
+ *
+ */
+public class SolrIndexerMetrics implements SolrIndexerMetricsMBean
+{
+    /**
+     * Steps of the indexing of the documents
+     */
+    public enum Stage
+    {
+        PRODUCTION,
+        ENRICHMENT,
+        CONVERSION,
+        SOLR_ADD,
+        COMMIT
+    }
+
+    private final String _strIndexerName;
+    private final LongAdder _documents = new LongAdder( );
+    private final LongAdder _bytes = new LongAdder( );
+    private final LongAdder _errors = new LongAdder( );
+    private final Map<Stage, LongAdder> _mapStageNanos = new EnumMap<>( Stage.class );
+    private volatile long _lStartNanos;
+    private volatile long _lEndNanos;
+
+    /**
+     * Creates the metrics of an indexer
+     *
+     * @param strIndexerName
+     *            the name of the indexer
+     */
+    SolrIndexerMetrics( String strIndexerName )
+    {
+        _strIndexerName = strIndexerName;
+
+        for ( Stage stage : Stage.values( ) )
+        {
+            _mapStageNanos.put( stage, new LongAdder( ) );
+        }
+    }
+
+    /**
+     * Reset the counters and times, and start measuring a new run
+     */
+    void start( )
+    {
+        _documents.reset( );
+        _bytes.reset( );
+        _errors.reset( );
+
+        for ( LongAdder nanos : _mapStageNanos.values( ) )
+        {
+            nanos.reset( );
+        }
+
+        _lEndNanos = 0;
+        _lStartNanos = System.nanoTime( );
+    }
+
+    /**
+     * Stop measuring the run
+     */
+    void stop( )
+    {
+        _lEndNanos = System.nanoTime( );
+    }
+
+    /**
+     * Count documents sent to the Solr server
+     *
+     * @param nDocuments
+     *            the number of documents
+     * @param lBytes
+     *            the estimated size of the documents
+     */
+    void addDocuments( int nDocuments, long lBytes )
+    {
+        _documents.add( nDocuments );
+        _bytes.add( lBytes );
+    }
+
+    /**
+     * Count documents in error
+     *
+     * @param nErrors
+     *            the number of documents
+     */
+    void addErrors( int nErrors )
+    {
+        _errors.add( nErrors );
+    }
+
+    /**
+     * Add the time spent in a stage
+     *
+     * @param stage
+     *            the stage
+     * @param lNanos
+     *            the time in nanoseconds
+     */
+    void addTime( Stage stage, long lNanos )
+    {
+        _mapStageNanos.get( stage ).add( lNanos );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getIndexerName( )
+    {
+        return _strIndexerName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDocuments( )
+    {
+        return _documents.sum( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBytesSent( )
+    {
+        return _bytes.sum( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getErrors( )
+    {
+        return _errors.sum( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getElapsedMillis( )
+    {
+        long lStartNanos = _lStartNanos;
+        long lEndNanos = _lEndNanos;
+
+        if ( lStartNanos == 0 )
+        {
+            return 0;
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis( ( ( lEndNanos != 0 ) ? lEndNanos : System.nanoTime( ) ) - lStartNanos );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getDocumentsPerSecond( )
+    {
+        long lElapsedMillis = getElapsedMillis( );
+
+        return ( lElapsedMillis > 0 ) ? ( ( getDocuments( ) * 1000.0 ) / lElapsedMillis ) : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getProductionMillis( )
+    {
+        return getStageMillis( Stage.PRODUCTION );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEnrichmentMillis( )
+    {
+        return getStageMillis( Stage.ENRICHMENT );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getConversionMillis( )
+    {
+        return getStageMillis( Stage.CONVERSION );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSolrAddMillis( )
+    {
+        return getStageMillis( Stage.SOLR_ADD );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCommitMillis( )
+    {
+        return getStageMillis( Stage.COMMIT );
+    }
+
+    /**
+     * Returns the time spent in a stage
+     *
+     * @param stage
+     *            the stage
+     * @return the time in milliseconds
+     */
+    public long getStageMillis( Stage stage )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( _mapStageNanos.get( stage ).sum( ) );
+    }
+}
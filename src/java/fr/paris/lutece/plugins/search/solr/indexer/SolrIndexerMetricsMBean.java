@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+/**
+ * JMX view of the indexing metrics of an indexer
+ */
+public interface SolrIndexerMetricsMBean
+{
+    /**
+     * Returns the name of the indexer
+     *
+     * @return the name of the indexer
+     */
+    String getIndexerName( );
+
+    /**
+     * Returns the number of documents indexed by the last run, sent to the Solr server or skipped because they have not changed
+     *
+     * @return the number of documents
+     */
+    long getDocuments( );
+
+    /**
+     * Returns the estimated size of the documents sent by the last run
+     *
+     * @return the size in bytes
+     */
+    long getBytesSent( );
+
+    /**
+     * Returns the number of documents in error in the last run
+     *
+     * @return the number of documents
+     */
+    long getErrors( );
+
+    /**
+     * Returns the duration of the last run of the indexer, or of the current run
+     *
+     * @return the duration in milliseconds
+     */
+    long getElapsedMillis( );
+
+    /**
+     * Returns the throughput of the last run of the indexer, or of the current run
+     *
+     * @return the number of documents indexed per second
+     */
+    double getDocumentsPerSecond( );
+
+    /**
+     * Returns the time spent by the indexer to produce its items
+     *
+     * @return the time in milliseconds
+     */
+    long getProductionMillis( );
+
+    /**
+     * Returns the time spent in the external field providers
+     *
+     * @return the time in milliseconds
+     */
+    long getEnrichmentMillis( );
+
+    /**
+     * Returns the time spent to convert the items into documents
+     *
+     * @return the time in milliseconds
+     */
+    long getConversionMillis( );
+
+    /**
+     * Returns the time spent to send the documents to the Solr server
+     *
+     * @return the time in milliseconds
+     */
+    long getSolrAddMillis( );
+
+    /**
+     * Returns the time spent in the commits
+     *
+     * @return the time in milliseconds
+     */
+    long getCommitMillis( );
+}
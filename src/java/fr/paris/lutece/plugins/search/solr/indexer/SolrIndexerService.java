@@ -34,12 +34,25 @@
 package fr.paris.lutece.plugins.search.solr.indexer;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
@@ -48,11 +61,22 @@ import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrInputDocument;
 
+import fr.paris.lutece.plugins.search.solr.business.SolrBulkUpdateClient;
 import fr.paris.lutece.plugins.search.solr.business.SolrServerService;
+import fr.paris.lutece.plugins.search.solr.business.checkpoint.SolrIndexerCheckpoint;
 import fr.paris.lutece.plugins.search.solr.business.field.Field;
 import fr.paris.lutece.plugins.search.solr.business.indexeraction.SolrIndexerAction;
 import fr.paris.lutece.plugins.search.solr.business.indexeraction.SolrIndexerActionHome;
+import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexerMetrics.Stage;
+import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexingEvent.Status;
+import fr.paris.lutece.plugins.search.solr.service.SolrBlueGreenService;
+import fr.paris.lutece.plugins.search.solr.service.SolrFingerprintService;
+import fr.paris.lutece.plugins.search.solr.service.SolrIndexerActionRetryService;
+import fr.paris.lutece.plugins.search.solr.service.SolrIndexerCheckpointService;
+import fr.paris.lutece.plugins.search.solr.service.SolrMergePolicyService;
 import fr.paris.lutece.plugins.search.solr.service.SolrPlugin;
+import fr.paris.lutece.plugins.search.solr.service.TikaTextCacheService;
+import fr.paris.lutece.plugins.search.solr.util.LuteceSolrException;
 import fr.paris.lutece.plugins.search.solr.util.SolrConstants;
 import fr.paris.lutece.portal.business.indexeraction.IndexerAction;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -73,14 +97,42 @@ public final class SolrIndexerService
 {
     private static final SolrClient SOLR_SERVER = SolrServerService.getInstance( ).getSolrServer( );
     private static final List<SolrIndexer> INDEXERS = initIndexersList( );
-    private static final String PARAM_TYPE_PAGE = "PAGE";
     private static StringBuilder _sbLogs;
+    private static final AtomicInteger COMMIT_COUNTER = new AtomicInteger( );
+    private static final AtomicInteger SENT_COUNTER = new AtomicInteger( );
+    private static final AtomicInteger SKIPPED_COUNTER = new AtomicInteger( );
+    private static volatile boolean _bRunning;
+    private static volatile boolean _bFullRunning;
+    private static volatile SolrClient _updateClient;
+    private static volatile long _lRunGeneration;
+    private static volatile Map<String, SolrIndexerCheckpoint> _mapCheckpoints = Collections.emptyMap( );
     private static final String PROPERTY_SITE = "lutece.name";
     private static final String PROPERTY_PROD_URL = "lutece.prod.url";
     private static final String PROPERTY_BASE_URL = "lutece.base.url";
     private static final String LOG_ERROR = " - ERROR : ";
     private static final String LOG_CLOSE_STRONG = "</strong>\r\n";
+    private static final String MESSAGE_NO_INDEXER = "No indexer found for the resource name : ";
     private static final String PROPERTY_COMMIT_SIZE = "solr.indexer.commit.size";
+    private static final int DEFAULT_COMMIT_SIZE = 10000;
+    private static final String PROPERTY_FULL_INDEXING_THREADS = "solr.indexer.full.threads";
+    private static final int DEFAULT_FULL_INDEXING_THREADS = 1;
+    private static final String PROPERTY_BATCH_SIZE = "solr.indexer.batch.size";
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final String PROPERTY_BATCH_MAX_BYTES = "solr.indexer.batch.maxBytes";
+    private static final long DEFAULT_BATCH_MAX_BYTES = 10485760L;
+    private static final ThreadLocal<StringBuilder> INDEXER_LOGS = new ThreadLocal<>( );
+    private static final String PROPERTY_FULL_STRATEGY = "solr.indexer.full.strategy";
+    private static final String STRATEGY_BLUE_GREEN = "bluegreen";
+    private static final String STRATEGY_GENERATION = "generation";
+    private static final String PROPERTY_BULK_ENABLE = "solr.indexer.bulk.enable";
+    private static final String PROPERTY_ACTION_PAGE_SIZE = "solr.indexer.action.pageSize";
+    private static final int DEFAULT_ACTION_PAGE_SIZE = 1000;
+    private static final String PROPERTY_ACTION_LEASE_DURATION = "solr.indexer.action.leaseDuration";
+    private static final long DEFAULT_ACTION_LEASE_DURATION = 600;
+    private static final String PROPERTY_NODE_ID = "solr.indexer.node.id";
+    private static final int NODE_ID_MAX_LENGTH = 200;
+    private static final String PROPERTY_PAGE_EVENTS_ONLY = "solr.indexer.page.eventsOnly";
+    private static final String EVENT_TYPE_INDEXER = "INDEXER";
 
     /**
      * Empty private constructor
@@ -113,219 +165,1389 @@ public final class SolrIndexerService
     {
         try
         {
-            sbLogs.append( "Indexing " );
-            sbLogs.append( solrItem.getType( ) );
-            sbLogs.append( " #" );
-            sbLogs.append( solrItem.getUid( ) );
-            sbLogs.append( " - " );
-            sbLogs.append( solrItem.getTitle( ) );
-            SolrInputDocument solrInputDocument = solrItem2SolrInputDocument( solrItem );
-            SOLR_SERVER.add( solrInputDocument );
-            sbLogs.append( "\r\n" );
+            sendDocument( solrItem, SolrIndexingMetrics.getCurrent( ) );
         }
         catch( Exception e )
         {
+            SolrIndexingMetrics.getCurrent( ).addErrors( 1 );
+            logIndexingError( solrItem, e, sbLogs );
+        }
+    }
+
+    /**
+     * Convert an item and send its document, measuring the conversion and the sending
+     * 
+     * @param solrItem
+     *            The item
+     * @param metrics
+     *            the metrics of the indexer
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static void sendDocument( SolrItem solrItem, SolrIndexerMetrics metrics ) throws SolrServerException, IOException
+    {
+        long lStart = System.nanoTime( );
+        SolrInputDocument solrInputDocument = solrItem2SolrInputDocument( solrItem );
+        long lConverted = System.nanoTime( );
+        metrics.addTime( Stage.CONVERSION, lConverted - lStart );
+
+        addDocument( solrItem, solrInputDocument );
+        metrics.addTime( Stage.SOLR_ADD, System.nanoTime( ) - lConverted );
+        metrics.addDocuments( 1, SolrDocumentBatch.estimateSize( solrInputDocument ) );
+    }
+
+    /**
+     * Convert an item and add it to a batch of documents
+     * 
+     * @param solrItem
+     *            The item
+     * @param batch
+     *            the batch
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @return false if the item cannot be converted
+     */
+    static boolean addToBatch( SolrItem solrItem, SolrDocumentBatch batch, StringBuilder sbLogs )
+    {
+        try
+        {
+            batch.add( solrItem, solrItem2SolrInputDocument( solrItem ) );
+
+            return true;
+        }
+        catch( Exception e )
+        {
+            logIndexingError( solrItem, e, sbLogs );
+
+            return false;
+        }
+    }
+
+    /**
+     * Send a batch of documents with a single request. If the request fails, the documents are sent one by one to find out which ones are in error. If the
+     * fingerprints of the documents cannot be compared, the whole batch is sent.
+     * 
+     * @param batch
+     *            the batch
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @return the number of documents in error
+     */
+    static int flushBatch( SolrDocumentBatch batch, StringBuilder sbLogs )
+    {
+        int nErrors = 0;
+
+        if ( batch.isEmpty( ) )
+        {
+            return nErrors;
+        }
+
+        try
+        {
+            Map<String, String> mapFingerprints;
+            Set<String> setUnchanged;
+
+            try
+            {
+                mapFingerprints = SolrFingerprintService.computeFingerprints( batch.getDocuments( ) );
+                setUnchanged = isSkipUnchanged( ) ? SolrFingerprintService.findUnchanged( mapFingerprints ) : Collections.emptySet( );
+            }
+            catch( Exception e )
+            {
+                AppLogService.error( "Unable to compare the fingerprints of a batch of " + batch.getDocuments( ).size( ) + " documents, sending all of them", e );
+                mapFingerprints = new HashMap<>( );
+                setUnchanged = Collections.emptySet( );
+            }
+
+            List<SolrItem> listItems = new ArrayList<>( );
+            List<SolrInputDocument> listDocuments = new ArrayList<>( );
+
+            for ( int i = 0; i < batch.getDocuments( ).size( ); i++ )
+            {
+                SolrInputDocument solrInputDocument = batch.getDocuments( ).get( i );
+                Object uid = solrInputDocument.getFieldValue( SearchItem.FIELD_UID );
+
+                if ( ( uid != null ) && setUnchanged.contains( uid.toString( ) ) )
+                {
+                    SKIPPED_COUNTER.incrementAndGet( );
+                    SolrIndexingLog.add( Status.UNCHANGED, batch.getItems( ).get( i ), null );
+                    mapFingerprints.remove( uid.toString( ) );
+                }
+                else
+                {
+                    listItems.add( batch.getItems( ).get( i ) );
+                    listDocuments.add( solrInputDocument );
+                }
+            }
+
+            if ( !listDocuments.isEmpty( ) )
+            {
+                nErrors = sendBatch( listItems, listDocuments, mapFingerprints, sbLogs );
+            }
+        }
+        finally
+        {
+            batch.clear( );
+        }
+
+        return nErrors;
+    }
+
+    /**
+     * Send the documents of a batch with a single request, or one by one if the request fails
+     * 
+     * @param listItems
+     *            the items the documents were built from
+     * @param listDocuments
+     *            the documents
+     * @param mapFingerprints
+     *            the fingerprints of the documents, by uid
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @return the number of documents in error
+     */
+    private static int sendBatch( List<SolrItem> listItems, List<SolrInputDocument> listDocuments, Map<String, String> mapFingerprints,
+            StringBuilder sbLogs )
+    {
+        try
+        {
+            getUpdateClient( ).add( listDocuments, SolrCommitPolicy.getPolicy( ).getCommitWithin( ) );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Error while sending a batch of " + listDocuments.size( ) + " documents, sending them one by one", e );
+
+            return sendOneByOne( listItems, listDocuments, mapFingerprints, sbLogs );
+        }
+
+        SENT_COUNTER.addAndGet( listDocuments.size( ) );
+        SolrFingerprintService.addPending( mapFingerprints );
+
+        for ( SolrItem solrItem : listItems )
+        {
+            SolrIndexingLog.add( Status.INDEXED, solrItem, null );
+        }
+
+        return 0;
+    }
+
+    /**
+     * Send the documents of a batch one by one
+     * 
+     * @param listItems
+     *            the items the documents were built from
+     * @param listDocuments
+     *            the documents
+     * @param mapFingerprints
+     *            the fingerprints of the documents, by uid
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @return the number of documents in error
+     */
+    private static int sendOneByOne( List<SolrItem> listItems, List<SolrInputDocument> listDocuments, Map<String, String> mapFingerprints,
+            StringBuilder sbLogs )
+    {
+        int nErrors = 0;
+
+        for ( int i = 0; i < listDocuments.size( ); i++ )
+        {
+            SolrInputDocument solrInputDocument = listDocuments.get( i );
+
+            try
+            {
+                getUpdateClient( ).add( solrInputDocument, SolrCommitPolicy.getPolicy( ).getCommitWithin( ) );
+            }
+            catch( Exception e )
+            {
+                nErrors++;
+                logIndexingError( listItems.get( i ), e, sbLogs );
+
+                continue;
+            }
+
+            SENT_COUNTER.incrementAndGet( );
+            Object uid = solrInputDocument.getFieldValue( SearchItem.FIELD_UID );
+
+            if ( ( uid != null ) && mapFingerprints.containsKey( uid.toString( ) ) )
+            {
+                SolrFingerprintService.addPending( Collections.singletonMap( uid.toString( ), mapFingerprints.get( uid.toString( ) ) ) );
+            }
+
+            SolrIndexingLog.add( Status.INDEXED, listItems.get( i ), null );
+        }
+
+        return nErrors;
+    }
+
+    /**
+     * Send a document, unless its content has not changed since it was sent. If the fingerprint of the document cannot be compared, the document is sent.
+     * 
+     * @param solrItem
+     *            the item the document was built from
+     * @param solrInputDocument
+     *            the document
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static void addDocument( SolrItem solrItem, SolrInputDocument solrInputDocument ) throws SolrServerException, IOException
+    {
+        Map<String, String> mapFingerprints;
+
+        try
+        {
+            mapFingerprints = SolrFingerprintService.computeFingerprints( Collections.singletonList( solrInputDocument ) );
+
+            if ( isSkipUnchanged( ) && !SolrFingerprintService.findUnchanged( mapFingerprints ).isEmpty( ) )
+            {
+                SKIPPED_COUNTER.incrementAndGet( );
+                SolrIndexingLog.add( Status.UNCHANGED, solrItem, null );
+
+                return;
+            }
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Unable to compare the fingerprint of the document, sending it", e );
+            mapFingerprints = Collections.emptyMap( );
+        }
+
+        getUpdateClient( ).add( solrInputDocument, SolrCommitPolicy.getPolicy( ).getCommitWithin( ) );
+        SENT_COUNTER.incrementAndGet( );
+        SolrFingerprintService.addPending( mapFingerprints );
+        SolrIndexingLog.add( Status.INDEXED, solrItem, null );
+    }
+
+    /**
+     * Record the indexing error of a document in the indexing log. The first errors of the run are also detailed in the text logs.
+     * 
+     * @param solrItem
+     *            The item
+     * @param e
+     *            the error
+     * @param sbLogs
+     *            StringBuilder to write to
+     */
+    private static void logIndexingError( SolrItem solrItem, Exception e, StringBuilder sbLogs )
+    {
+        if ( SolrIndexingLog.add( Status.ERROR, solrItem, buildErrorMessage( e ) ) )
+        {
+            appendIndexingLog( solrItem, sbLogs );
             printIndexMessage( e, sbLogs );
         }
+        else
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Tells whether the documents whose content has not changed are skipped. During a full indexing, all the documents are sent.
+     * 
+     * @return true if the unchanged documents are skipped
+     */
+    private static boolean isSkipUnchanged( )
+    {
+        return !_bFullRunning && SolrFingerprintService.isEnabled( );
+    }
+
+    /**
+     * Creates a new empty batch of documents
+     * 
+     * @return the batch
+     */
+    static SolrDocumentBatch newBatch( )
+    {
+        return new SolrDocumentBatch( getBatchSize( ), AppPropertiesService.getPropertyLong( PROPERTY_BATCH_MAX_BYTES, DEFAULT_BATCH_MAX_BYTES ) );
+    }
+
+    /**
+     * Returns the maximum number of documents sent in a single request
+     * 
+     * @return the batch size
+     */
+    static int getBatchSize( )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE );
+    }
+
+    /**
+     * Commit the documents sent to the Solr server
+     * 
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    static void commit( ) throws SolrServerException, IOException
+    {
+        SolrCommitPolicy policy = SolrCommitPolicy.getPolicy( );
+        SolrClient updateClient = getUpdateClient( );
+
+        if ( ( ( policy == SolrCommitPolicy.HARD ) || ( policy == SolrCommitPolicy.SOFT ) ) && ( updateClient instanceof SolrBulkUpdateClient ) )
+        {
+            // the queued documents must be sent before the commit
+            ( (SolrBulkUpdateClient) updateClient ).blockUntilFinished( );
+        }
+
+        if ( policy == SolrCommitPolicy.HARD )
+        {
+            commitAndStoreFingerprints( false );
+        }
+        else
+            if ( policy == SolrCommitPolicy.SOFT )
+            {
+                commitAndStoreFingerprints( true );
+            }
+    }
+
+    /**
+     * Commit the documents sent to the Solr server, then store their fingerprints. If the commit fails, the stored fingerprints of the documents are removed so
+     * that they are sent again by the next run.
+     * 
+     * @param bSoft
+     *            true for a soft commit
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static void commitAndStoreFingerprints( boolean bSoft ) throws SolrServerException, IOException
+    {
+        Map<String, String> mapFingerprints = SolrFingerprintService.takePending( );
+
+        try
+        {
+            if ( bSoft )
+            {
+                getUpdateClient( ).commit( false, true, true );
+            }
+            else
+            {
+                getUpdateClient( ).commit( );
+            }
+
+            COMMIT_COUNTER.incrementAndGet( );
+        }
+        catch( SolrServerException | IOException | RuntimeException e )
+        {
+            SolrFingerprintService.invalidate( mapFingerprints );
+
+            throw e;
+        }
+
+        SolrFingerprintService.store( mapFingerprints );
+    }
+
+    /**
+     * Wait until the documents queued by the bulk update client have been sent to the Solr server
+     * 
+     * @throws IOException
+     *             i/o exception
+     */
+    static void waitForUpdates( ) throws IOException
+    {
+        SolrClient updateClient = getUpdateClient( );
+
+        if ( updateClient instanceof SolrBulkUpdateClient )
+        {
+            ( (SolrBulkUpdateClient) updateClient ).blockUntilFinished( );
+        }
+    }
+
+    /**
+     * Commit the documents sent to the Solr server at the end of an indexing run, according to the commit policy
+     * 
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static void commitEndOfRun( ) throws SolrServerException, IOException
+    {
+        SolrCommitPolicy policy = SolrCommitPolicy.getPolicy( );
+
+        if ( policy == SolrCommitPolicy.SOFT )
+        {
+            commitAndStoreFingerprints( true );
+        }
+        else
+            if ( policy == SolrCommitPolicy.WITHIN )
+            {
+                // the server commits the documents within the delay
+                SolrFingerprintService.store( SolrFingerprintService.takePending( ) );
+            }
+            else
+            {
+                commitAndStoreFingerprints( false );
+            }
+    }
+
+    /**
+     * Returns the client receiving the updates : the shadow collection while a blue/green full indexing is running, the live one otherwise
+     * 
+     * @return the client
+     */
+    private static SolrClient getUpdateClient( )
+    {
+        SolrClient updateClient = _updateClient;
+
+        return ( updateClient != null ) ? updateClient : SOLR_SERVER;
+    }
+
+    /**
+     * Open a writer indexing items as they are produced, called by plugin indexers. The writer must be closed to send the last items.
+     * 
+     * @return the writer
+     */
+    public static SolrItemWriter openWriter( )
+    {
+        return openWriter( getSbLogs( ) );
+    }
+
+    /**
+     * Open a writer indexing items as they are produced, called by external code. The writer must be closed to send the last items.
+     * 
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @return the writer
+     */
+    public static SolrItemWriter openWriter( StringBuilder sbLogs )
+    {
+        return new SolrItemWriter( sbLogs, AppPropertiesService.getPropertyInt( PROPERTY_COMMIT_SIZE, DEFAULT_COMMIT_SIZE ) );
+    }
+
+    /**
+     * Append the indexing log line of an item
+     * 
+     * @param solrItem
+     *            The item
+     * @param sbLogs
+     *            StringBuilder to write to
+     */
+    private static void appendIndexingLog( SolrItem solrItem, StringBuilder sbLogs )
+    {
+        sbLogs.append( "Indexing " );
+        sbLogs.append( solrItem.getType( ) );
+        sbLogs.append( " #" );
+        sbLogs.append( solrItem.getUid( ) );
+        sbLogs.append( " - " );
+        sbLogs.append( solrItem.getTitle( ) );
+    }
+
+    /**
+     * Index one document, called by plugin indexers
+     * 
+     * @param solrItem
+     *            The item
+     * @throws IOException
+     *             i/o exception
+     */
+    public static void write( SolrItem solrItem ) throws IOException
+    {
+        write( solrItem, getSbLogs( ) );
+    }
+
+    /**
+     * Index one document, called by external code
+     * 
+     * @param solrItem
+     *            The item
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @throws IOException
+     *             i/o exception
+     */
+    public static void write( SolrItem solrItem, StringBuilder sbLogs ) throws IOException
+    {
+        try
+        {
+            writeNoCommit( solrItem, sbLogs );
+            commitWrite( );
+        }
+        catch( Exception e )
+        {
+            printIndexMessage( e, sbLogs );
+        }
+    }
+
+    /**
+     * Index a collection of documents, called by plugin indexers
+     * 
+     * @param solrItems
+     *            The item
+     * @throws IOException
+     *             i/o exception
+     */
+    public static void write( Collection<SolrItem> solrItems ) throws IOException
+    {
+        write( solrItems, getSbLogs( ) );
+    }
+
+    /**
+     * Index a collection of documents, called by external code
+     * 
+     * @param solrItems
+     *            The item
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @throws IOException
+     *             i/o exception
+     */
+    public static void write( Collection<SolrItem> solrItems, StringBuilder sbLogs ) throws IOException
+    {
+        try
+        {
+            try ( SolrItemWriter writer = openWriter( sbLogs ) )
+            {
+                for ( SolrItem solrItem : solrItems )
+                {
+                    writer.write( solrItem );
+                }
+            }
+        }
+        catch( Exception e )
+        {
+            printIndexMessage( e, sbLogs );
+        }
+    }
+
+    /**
+     * Send partial updates of documents, called by plugin indexers
+     * 
+     * @param listUpdates
+     *            the updates
+     * @throws IOException
+     *             i/o exception
+     */
+    public static void writePartial( Collection<SolrPartialUpdate> listUpdates ) throws IOException
+    {
+        writePartial( listUpdates, getSbLogs( ) );
+    }
+
+    /**
+     * Send partial updates of documents with a single request, called by external code. Only the modified fields are sent : the documents must already be
+     * indexed.
+     * 
+     * @param listUpdates
+     *            the updates
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @throws IOException
+     *             i/o exception
+     */
+    public static void writePartial( Collection<SolrPartialUpdate> listUpdates, StringBuilder sbLogs ) throws IOException
+    {
+        List<SolrInputDocument> listDocuments = new ArrayList<>( );
+        List<String> listUids = new ArrayList<>( );
+
+        for ( SolrPartialUpdate update : listUpdates )
+        {
+            if ( !update.isEmpty( ) )
+            {
+                SolrInputDocument solrInputDocument = update.toSolrInputDocument( );
+                listDocuments.add( solrInputDocument );
+                listUids.add( solrInputDocument.getFieldValue( SearchItem.FIELD_UID ).toString( ) );
+            }
+        }
+
+        if ( listDocuments.isEmpty( ) )
+        {
+            return;
+        }
+
+        SolrIndexerMetrics metrics = SolrIndexingMetrics.getCurrent( );
+
+        try
+        {
+            long lStart = System.nanoTime( );
+            getUpdateClient( ).add( listDocuments, SolrCommitPolicy.getPolicy( ).getCommitWithin( ) );
+            metrics.addTime( Stage.SOLR_ADD, System.nanoTime( ) - lStart );
+            SENT_COUNTER.addAndGet( listDocuments.size( ) );
+
+            // the fingerprints of the full documents no longer match the indexed documents
+            SolrFingerprintService.remove( listUids );
+
+            for ( String strUid : listUids )
+            {
+                SolrIndexingLog.add( Status.PARTIAL_UPDATE, null, strUid, null, null );
+            }
+
+            long lBytes = 0;
+
+            for ( SolrInputDocument solrInputDocument : listDocuments )
+            {
+                lBytes += SolrDocumentBatch.estimateSize( solrInputDocument );
+            }
+
+            metrics.addDocuments( listDocuments.size( ), lBytes );
+            commitWrite( );
+        }
+        catch( Exception e )
+        {
+            metrics.addErrors( listDocuments.size( ) );
+            printIndexMessage( e, sbLogs );
+        }
+    }
+
+    /**
+     * Commit the documents written outside of the pipeline : during an indexing run according to the commit policy, otherwise at once since no run will
+     * commit them
+     * 
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static void commitWrite( ) throws SolrServerException, IOException
+    {
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            if ( _bRunning )
+            {
+                commit( );
+            }
+            else
+            {
+                // no indexing run will commit these documents
+                commitEndOfRun( );
+            }
+        }
+        finally
+        {
+            SolrIndexingMetrics.getCurrent( ).addTime( Stage.COMMIT, System.nanoTime( ) - lStart );
+        }
+    }
+
+    /**
+     * Process the indexing
+     * 
+     * @param bCreate
+     *            tell if it's total indexing or total (total = true)
+     * @return the result log of the indexing
+     */
+    public static synchronized String processIndexing( boolean bCreate )
+    {
+        // String buffer for building the response page
+        _sbLogs = new StringBuilder( );
+        boolean bCreateIndex = bCreate;
+        String strWebappNameEscaped = ClientUtils.escapeQueryChars( getWebAppName( ) );
+        _bRunning = true;
+        COMMIT_COUNTER.set( 0 );
+        SENT_COUNTER.set( 0 );
+        SKIPPED_COUNTER.set( 0 );
+        SolrIndexingLog.reset( );
+        TikaTextCacheService.resetCounters( );
+        SolrIndexerMetrics metrics = SolrIndexingMetrics.get( SolrIndexingMetrics.NAME_INDEXER_SERVICE );
+        metrics.start( );
+
+        try
+        {
+            Date start = new Date( );
+
+            if ( bCreateIndex )
+            {
+                processFullIndexing( strWebappNameEscaped );
+            }
+            else
+            {
+                processIncrementalIndexing( strWebappNameEscaped );
+            }
+
+            long lCommitStart = System.nanoTime( );
+            commitEndOfRun( );
+            metrics.addTime( Stage.COMMIT, System.nanoTime( ) - lCommitStart );
+            SolrMergePolicyService.applyMergePolicy( SOLR_SERVER, _sbLogs );
+
+            Date end = new Date( );
+            _sbLogs.append( "Documents sent : " );
+            _sbLogs.append( SENT_COUNTER.get( ) );
+            _sbLogs.append( " - Unchanged documents skipped : " );
+            _sbLogs.append( SKIPPED_COUNTER.get( ) );
+            _sbLogs.append( " - Errors : " );
+            _sbLogs.append( SolrIndexingLog.getCount( Status.ERROR ) );
+            _sbLogs.append( "\r\n" );
+
+            if ( TikaTextCacheService.isEnabled( ) )
+            {
+                _sbLogs.append( "Extracted text cache : " );
+                _sbLogs.append( TikaTextCacheService.getHits( ) );
+                _sbLogs.append( " hits - " );
+                _sbLogs.append( TikaTextCacheService.getMisses( ) );
+                _sbLogs.append( " misses\r\n" );
+            }
+            _sbLogs.append( "Commits issued : " );
+            _sbLogs.append( COMMIT_COUNTER.get( ) );
+            _sbLogs.append( "\r\n" );
+            _sbLogs.append( "Duration of the treatment : " );
+            _sbLogs.append( end.getTime( ) - start.getTime( ) );
+            _sbLogs.append( " milliseconds\r\n" );
+        }
+        catch( Exception e )
+        {
+            _sbLogs.append( " caught a " );
+            _sbLogs.append( e.getClass( ) );
+            _sbLogs.append( "\r\n with message: " );
+            _sbLogs.append( e.getMessage( ) );
+            _sbLogs.append( "\r\n See error logs for the stacktrace.\r\n" );
+            AppLogService.error( "Indexing error : " + e.getMessage( ), e );
+        }
+        finally
+        {
+            metrics.stop( );
+            _bRunning = false;
+        }
+
+        return _sbLogs.toString( );
+    }
+
+    private static void processFullIndexing( String strWebappNameEscaped ) throws SolrServerException, IOException, LuteceSolrException
+    {
+        Plugin plugin = PluginService.getPlugin( SolrPlugin.PLUGIN_NAME );
+
+        _sbLogs.append( "\r\nIndexing all contents ...\r\n" );
+
+        String strSiteQuery = SearchItem.FIELD_UID + ":" + strWebappNameEscaped + SolrConstants.CONSTANT_UNDERSCORE + SolrConstants.CONSTANT_WILDCARD;
+
+        String strStrategy = AppPropertiesService.getProperty( PROPERTY_FULL_STRATEGY, StringUtils.EMPTY ).trim( );
+        boolean bBlueGreen = STRATEGY_BLUE_GREEN.equalsIgnoreCase( strStrategy );
+        boolean bGeneration = STRATEGY_GENERATION.equalsIgnoreCase( strStrategy );
+
+        // the shadow collection is rebuilt from scratch : a blue/green indexing is never resumed
+        Map<String, SolrIndexerCheckpoint> mapCheckpoints = bBlueGreen ? Collections.emptyMap( ) : SolrIndexerCheckpointService.getCheckpoints( );
+        boolean bResume = !mapCheckpoints.isEmpty( );
+        long lGeneration;
+
+        if ( bResume )
+        {
+            lGeneration = mapCheckpoints.values( ).iterator( ).next( ).getGeneration( );
+            _sbLogs.append( "Resuming the interrupted indexing of generation " ).append( lGeneration ).append( "\r\n" );
+
+            // the resources indexed before the interruption are not indexed again : the documents of those deleted since then are removed
+            applyPendingDeletions( plugin );
+        }
+        else
+        {
+            lGeneration = System.currentTimeMillis( );
+
+            // all the documents are sent again : the fingerprints are rebuilt
+            SolrFingerprintService.removeAll( );
+
+            if ( bBlueGreen )
+            {
+                SolrIndexerCheckpointService.clear( );
+            }
+            else
+            {
+                List<String> listIndexerNames = new ArrayList<>( );
+
+                for ( SolrIndexer solrIndexer : getEnabledIndexers( ) )
+                {
+                    listIndexerNames.add( solrIndexer.getName( ) );
+                }
+
+                // Remove all indexed values of this site, unless the generation strategy removes them at the end of the run
+                mapCheckpoints = SolrIndexerCheckpointService.start( lGeneration, listIndexerNames,
+                        bGeneration ? null : ( ) -> getUpdateClient( ).deleteByQuery( strSiteQuery ) );
+            }
+        }
+
+        _mapCheckpoints = mapCheckpoints;
+        _bFullRunning = true;
+
+        try
+        {
+            if ( bBlueGreen )
+            {
+                if ( !processBlueGreenIndexing( strSiteQuery ) )
+                {
+                    // the fingerprints describe the shadow index, not the live one
+                    SolrFingerprintService.removeAll( );
+
+                    // the live index is kept : keep the actions so that the next incremental indexing applies them
+                    return;
+                }
+            }
+            else
+                if ( bGeneration )
+                {
+                    processGenerationIndexing( strSiteQuery, lGeneration );
+                }
+                else
+                {
+                    runIndexersInBulk( );
+                }
+        }
+        finally
+        {
+            _bFullRunning = false;
+            _mapCheckpoints = Collections.emptyMap( );
+        }
+
+        // the run is over : the next one starts from scratch
+        SolrIndexerCheckpointService.clear( );
+
+        // Remove all actions of the database
+        SolrIndexerActionHome.removeAll( plugin );
+    }
+
+    /**
+     * Remove the documents of the resources deleted since a full indexing was interrupted, before resuming it
+     * 
+     * @param plugin
+     *            the plugin
+     */
+    private static void applyPendingDeletions( Plugin plugin )
+    {
+        List<SolrIndexerAction> listDeleteActions = new ArrayList<>( );
+
+        for ( SolrIndexerAction action : SolrIndexerActionHome.getList( plugin ) )
+        {
+            if ( ( action.getIdTask( ) == IndexerAction.TASK_DELETE ) && ( action.getIdPortlet( ) == IndexationService.ALL_DOCUMENT ) )
+            {
+                listDeleteActions.add( action );
+            }
+        }
+
+        processDeleteActions( listDeleteActions, plugin );
+    }
+
+    /**
+     * Build the full index into the shadow collection, then swap it with the live one if it is complete
+     * 
+     * @param strSiteQuery
+     *            the query matching all the documents of the site
+     * @return true if the new index is live
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     * @throws LuteceSolrException
+     *             if the shadow collection cannot be found or swapped
+     */
+    private static boolean processBlueGreenIndexing( String strSiteQuery ) throws SolrServerException, IOException, LuteceSolrException
+    {
+        String strShadowName = SolrBlueGreenService.getShadowName( );
+        _sbLogs.append( "Building the new index into " ).append( strShadowName ).append( "\r\n" );
+
+        try ( SolrClient shadowClient = SolrBlueGreenService.createShadowClient( strShadowName ) )
+        {
+            // Remove the documents left by the previous build
+            shadowClient.deleteByQuery( strSiteQuery );
+            _updateClient = shadowClient;
+            boolean bSuccess;
+
+            try
+            {
+                bSuccess = runIndexers( );
+            }
+            finally
+            {
+                _updateClient = null;
+            }
+
+            // the documents must be visible to be counted, whatever the commit policy
+            shadowClient.commit( );
+            COMMIT_COUNTER.incrementAndGet( );
+
+            if ( !bSuccess || !SolrBlueGreenService.verify( shadowClient, SOLR_SERVER, getWebAppName( ), _sbLogs ) )
+            {
+                _sbLogs.append( "<strong>ERROR : the new index is incomplete, the live index is kept" ).append( LOG_CLOSE_STRONG );
+
+                return false;
+            }
+
+            SolrBlueGreenService.swap( strShadowName );
+            _sbLogs.append( "The new index " ).append( strShadowName ).append( " is live\r\n" );
+
+            return true;
+        }
+    }
+
+    /**
+     * Re-add all the documents stamped with a new generation, then delete the documents of older generations. The previous documents stay searchable during
+     * the indexing.
+     * 
+     * @param strSiteQuery
+     *            the query matching all the documents of the site
+     * @param lGeneration
+     *            the generation of the documents, kept when an interrupted run is resumed
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static void processGenerationIndexing( String strSiteQuery, long lGeneration ) throws SolrServerException, IOException
+    {
+        boolean bSuccess;
+        _lRunGeneration = lGeneration;
+        _sbLogs.append( "Indexing generation : " ).append( lGeneration ).append( "\r\n" );
+
+        try
+        {
+            bSuccess = runIndexersInBulk( );
+        }
+        finally
+        {
+            _lRunGeneration = 0;
+        }
+
+        if ( bSuccess )
+        {
+            // Remove the documents which have not been indexed again
+            getUpdateClient( ).deleteByQuery( strSiteQuery + " AND -" + SolrItem.FIELD_INDEXING_GENERATION + ":[" + lGeneration + " TO *]" );
+            _sbLogs.append( "Documents of the previous generations removed\r\n" );
+        }
+        else
+        {
+            _sbLogs.append( "<strong>ERROR : an indexer failed, the documents of the previous generations are kept" ).append( LOG_CLOSE_STRONG );
+        }
+    }
+
+    /**
+     * Run all the enabled indexers. When the bulk mode is enabled, the documents are streamed to the live index by a dedicated client.
+     * 
+     * @return true if no indexer failed and all the documents have been sent
+     * @throws IOException
+     *             i/o exception
+     */
+    private static boolean runIndexersInBulk( ) throws IOException
+    {
+        if ( !AppPropertiesService.getPropertyBoolean( PROPERTY_BULK_ENABLE, false ) )
+        {
+            return runIndexers( );
+        }
+
+        try ( SolrBulkUpdateClient bulkClient = SolrServerService.getInstance( ).createBulkUpdateClient( ) )
+        {
+            boolean bSuccess;
+            _updateClient = bulkClient;
+
+            try
+            {
+                bSuccess = runIndexers( );
+            }
+            finally
+            {
+                _updateClient = null;
+                bulkClient.blockUntilFinished( );
+            }
+
+            if ( bulkClient.getErrorCount( ) > 0 )
+            {
+                _sbLogs.append( "<strong>ERROR : " ).append( bulkClient.getErrorCount( ) ).append( " bulk update requests failed, see the error logs" )
+                        .append( LOG_CLOSE_STRONG );
+
+                // the fingerprints of the documents which have not been sent are wrong
+                SolrFingerprintService.removeAll( );
+
+                return false;
+            }
+
+            return bSuccess;
+        }
+    }
+
+    /**
+     * Run all the enabled indexers, at most solr.indexer.full.threads at the same time
+     * 
+     * @return true if no indexer failed
+     */
+    private static boolean runIndexers( )
+    {
+        List<SolrIndexer> listEnabledIndexers = getEnabledIndexers( );
+
+        if ( listEnabledIndexers.isEmpty( ) )
+        {
+            return true;
+        }
+
+        int nThreads = Math.min( Math.max( AppPropertiesService.getPropertyInt( PROPERTY_FULL_INDEXING_THREADS, DEFAULT_FULL_INDEXING_THREADS ), 1 ),
+                listEnabledIndexers.size( ) );
+        ExecutorService executor = Executors.newFixedThreadPool( nThreads );
+        Set<String> setFailedIndexers = ConcurrentHashMap.newKeySet( );
+
+        try
+        {
+            List<Future<StringBuilder>> listResults = new ArrayList<>( );
+
+            for ( SolrIndexer solrIndexer : listEnabledIndexers )
+            {
+                listResults.add( executor.submit( ( ) -> runIndexer( solrIndexer, setFailedIndexers ) ) );
+            }
+
+            // Merge the logs of each indexer in the declaration order of the indexers
+            for ( int i = 0; i < listResults.size( ); i++ )
+            {
+                _sbLogs.append( getIndexerLogs( listEnabledIndexers.get( i ), listResults.get( i ), setFailedIndexers ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+
+        return setFailedIndexers.isEmpty( );
+    }
+
+    /**
+     * Returns the enabled indexers
+     * 
+     * @return the enabled indexers, in their declaration order
+     */
+    private static List<SolrIndexer> getEnabledIndexers( )
+    {
+        List<SolrIndexer> listEnabledIndexers = new ArrayList<>( );
+
+        for ( SolrIndexer solrIndexer : INDEXERS )
+        {
+            if ( solrIndexer.isEnable( ) )
+            {
+                listEnabledIndexers.add( solrIndexer );
+            }
+        }
+
+        return listEnabledIndexers;
+    }
+
+    /**
+     * Run the full indexing of one indexer. The logs of the indexer are written into a dedicated buffer so that indexers running at the same time do not mix
+     * their logs.
+     * 
+     * @param solrIndexer
+     *            the indexer
+     * @param setFailedIndexers
+     *            the names of the indexers which failed
+     * @return the logs of the indexer
+     */
+    private static StringBuilder runIndexer( SolrIndexer solrIndexer, Set<String> setFailedIndexers )
+    {
+        StringBuilder sbIndexerLogs = new StringBuilder( );
+        SolrIndexerMetrics metrics = SolrIndexingMetrics.get( solrIndexer.getName( ) );
+        INDEXER_LOGS.set( sbIndexerLogs );
+        SolrIndexingMetrics.setCurrent( metrics );
+        metrics.start( );
+
+        try
+        {
+            sbIndexerLogs.append( "\r\n<strong>Indexer : " );
+            sbIndexerLogs.append( solrIndexer.getName( ) );
+            sbIndexerLogs.append( " - " );
+            sbIndexerLogs.append( solrIndexer.getDescription( ) );
+            sbIndexerLogs.append( LOG_CLOSE_STRONG );
+
+            SolrIndexerCheckpoint checkpoint = _mapCheckpoints.get( solrIndexer.getName( ) );
+
+            if ( ( checkpoint != null ) && checkpoint.isCompleted( ) )
+            {
+                sbIndexerLogs.append( "Already indexed by the interrupted run\r\n" );
+
+                return sbIndexerLogs;
+            }
+
+            List<String> lstErrors;
+
+            if ( solrIndexer instanceof ISolrStreamingIndexer )
+            {
+                try ( SolrItemWriter writer = openWriter( sbIndexerLogs ) )
+                {
+                    String strLastResourceId = null;
+
+                    if ( checkpoint != null )
+                    {
+                        writer.setCheckpoint( checkpoint );
+                        strLastResourceId = checkpoint.getLastResourceId( );
+                    }
+
+                    if ( strLastResourceId != null )
+                    {
+                        sbIndexerLogs.append( "Resuming after the resource " ).append( strLastResourceId ).append( "\r\n" );
+                    }
+
+                    lstErrors = ( (ISolrStreamingIndexer) solrIndexer ).indexDocuments( writer, strLastResourceId );
+                }
+            }
+            else
+            {
+                // the indexer will call write(doc)
+                lstErrors = solrIndexer.indexDocuments( );
+            }
+
+            if ( lstErrors != null )
+            {
+                for ( String strError : lstErrors )
+                {
+                    sbIndexerLogs.append( "<strong>ERROR : " );
+                    sbIndexerLogs.append( strError );
+                    sbIndexerLogs.append( LOG_CLOSE_STRONG );
+                    addIndexerEvent( solrIndexer, strError );
+                }
+            }
+
+            if ( checkpoint != null )
+            {
+                // all the documents of the indexer have been sent : a resumed run skips it
+                waitForUpdates( );
+                checkpoint.setCompleted( true );
+                SolrIndexerCheckpointService.save( checkpoint );
+            }
+        }
+        catch( Exception e )
+        {
+            // an indexer failure must not stop the other indexers
+            setFailedIndexers.add( solrIndexer.getName( ) );
+            sbIndexerLogs.append( "<strong>Indexer : " ).append( solrIndexer.getName( ) );
+            printIndexMessage( e, sbIndexerLogs );
+            addIndexerEvent( solrIndexer, buildErrorMessage( e ) );
+        }
+        finally
+        {
+            metrics.stop( );
+            SolrIndexingMetrics.setCurrent( null );
+            INDEXER_LOGS.remove( );
+        }
+
+        appendMetrics( metrics, sbIndexerLogs );
+
+        return sbIndexerLogs;
     }
 
     /**
-     * Index one document, called by plugin indexers
+     * Add the error of an indexer to the indexing events, which are shown while the run goes on, unlike the logs of the indexer
      * 
-     * @param solrItem
-     *            The item
-     * @throws IOException
-     *             i/o exception
+     * @param solrIndexer
+     *            the indexer
+     * @param strMessage
+     *            the error message
      */
-    public static void write( SolrItem solrItem ) throws IOException
+    private static void addIndexerEvent( SolrIndexer solrIndexer, String strMessage )
     {
-        write( solrItem, _sbLogs );
+        SolrIndexingLog.add( Status.ERROR, EVENT_TYPE_INDEXER, solrIndexer.getName( ), solrIndexer.getDescription( ), strMessage );
     }
 
     /**
-     * Index one document, called by external code
+     * Append the metrics of an indexer run to the logs
      * 
-     * @param solrItem
-     *            The item
+     * @param metrics
+     *            the metrics
      * @param sbLogs
      *            StringBuilder to write to
-     * @throws IOException
-     *             i/o exception
      */
-    public static void write( SolrItem solrItem, StringBuilder sbLogs ) throws IOException
+    private static void appendMetrics( SolrIndexerMetrics metrics, StringBuilder sbLogs )
+    {
+        sbLogs.append( "Documents : " ).append( metrics.getDocuments( ) );
+        sbLogs.append( " - Errors : " ).append( metrics.getErrors( ) );
+        sbLogs.append( " - " ).append( String.format( Locale.ENGLISH, "%.1f", metrics.getDocumentsPerSecond( ) ) ).append( " documents/s" );
+        sbLogs.append( " - Time spent (ms) : production " ).append( metrics.getProductionMillis( ) );
+        sbLogs.append( ", external fields " ).append( metrics.getEnrichmentMillis( ) );
+        sbLogs.append( ", conversion " ).append( metrics.getConversionMillis( ) );
+        sbLogs.append( ", Solr add " ).append( metrics.getSolrAddMillis( ) );
+        sbLogs.append( ", commit " ).append( metrics.getCommitMillis( ) );
+        sbLogs.append( "\r\n" );
+    }
+
+    /**
+     * Wait for the end of an indexer and return its logs
+     * 
+     * @param solrIndexer
+     *            the indexer
+     * @param future
+     *            the result of the indexer
+     * @param setFailedIndexers
+     *            the names of the indexers which failed
+     * @return the logs of the indexer
+     */
+    private static CharSequence getIndexerLogs( SolrIndexer solrIndexer, Future<StringBuilder> future, Set<String> setFailedIndexers )
     {
+        StringBuilder sbIndexerLogs = new StringBuilder( );
+
         try
         {
-            writeNoCommit( solrItem, sbLogs );
-            SOLR_SERVER.commit( );
+            return future.get( );
         }
-        catch( Exception e )
+        catch( InterruptedException e )
         {
-            printIndexMessage( e, sbLogs );
+            Thread.currentThread( ).interrupt( );
+            setFailedIndexers.add( solrIndexer.getName( ) );
+            sbIndexerLogs.append( "\r\n<strong>Indexer : " ).append( solrIndexer.getName( ) ).append( " interrupted" ).append( LOG_CLOSE_STRONG );
         }
+        catch( ExecutionException e )
+        {
+            setFailedIndexers.add( solrIndexer.getName( ) );
+            sbIndexerLogs.append( "\r\n<strong>Indexer : " ).append( solrIndexer.getName( ) );
+            printIndexMessage( e, sbIndexerLogs );
+            addIndexerEvent( solrIndexer, buildErrorMessage( e ) );
+        }
+
+        return sbIndexerLogs;
     }
 
-    /**
-     * Index a collection of documents, called by plugin indexers
-     * 
-     * @param solrItems
-     *            The item
-     * @throws IOException
-     *             i/o exception
-     */
-    public static void write( Collection<SolrItem> solrItems ) throws IOException
+    private static void processIncrementalIndexing( String strWebappNameEscaped ) throws SolrServerException, IOException
     {
-        write( solrItems, _sbLogs );
+        Plugin plugin = PluginService.getPlugin( SolrPlugin.PLUGIN_NAME );
+
+        _sbLogs.append( "\r\nIncremental Indexing ...\r\n" );
+
+        // the queue is consumed page by page : each page is leased, so that the other nodes of a cluster process other actions meanwhile
+        int nPageSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_ACTION_PAGE_SIZE, DEFAULT_ACTION_PAGE_SIZE ), 1 );
+        long lLeaseDuration = AppPropertiesService.getPropertyLong( PROPERTY_ACTION_LEASE_DURATION, DEFAULT_ACTION_LEASE_DURATION ) * 1000L;
+        String strNodeId = getNodeId( );
+        int nClaimed = 0;
+        List<SolrIndexerAction> listActions = SolrIndexerActionHome.claim( newLeaseOwner( strNodeId ), nPageSize, lLeaseDuration, plugin );
+
+        while ( !listActions.isEmpty( ) )
+        {
+            nClaimed += listActions.size( );
+            processIndexingActions( coalesceActions( listActions, plugin ), strWebappNameEscaped, plugin );
+            listActions = SolrIndexerActionHome.claim( newLeaseOwner( strNodeId ), nPageSize, lLeaseDuration, plugin );
+        }
+
+        _sbLogs.append( "Actions processed by the node " ).append( strNodeId ).append( " : " ).append( nClaimed ).append( "\r\n" );
+
+        if ( !AppPropertiesService.getPropertyBoolean( PROPERTY_PAGE_EVENTS_ONLY, false ) )
+        {
+            reindexPages( );
+        }
     }
 
     /**
-     * Index a collection of documents, called by external code
-     * 
-     * @param solrItems
-     *            The item
-     * @param sbLogs
-     *            StringBuilder to write to
-     * @throws IOException
-     *             i/o exception
+     * Render all the pages again. The content of a page also changes with its portlets and with the resources of other plugins, which fire no page event.
+     * The deleted pages are removed by their page events, and only the changed pages are sent when the fingerprints are enabled.
      */
-    public static void write( Collection<SolrItem> solrItems, StringBuilder sbLogs ) throws IOException
+    private static void reindexPages( )
     {
-        try
+        for ( SolrIndexer indexer : getEnabledIndexers( ) )
         {
-            int commitSize = Integer.parseInt( AppPropertiesService.getProperty( PROPERTY_COMMIT_SIZE ) );
-            int count = 0;
-            provideExternalFields( solrItems );
-            
-            for ( SolrItem solrItem : solrItems )
+            if ( SolrPageIndexer.NAME.equals( indexer.getName( ) ) )
             {
-                count++;
-                writeNoCommit( solrItem, sbLogs );
-                if ( count % commitSize == 0 )
+                for ( String strError : indexer.indexDocuments( ) )
                 {
-                    SOLR_SERVER.commit( );
+                    _sbLogs.append( "\r\n<strong>Indexer : " ).append( indexer.getName( ) ).append( LOG_CLOSE_STRONG ).append( strError );
+                    addIndexerEvent( indexer, strError );
                 }
+
+                break;
             }
-            SOLR_SERVER.commit( );
-        }
-        catch( Exception e )
-        {
-            printIndexMessage( e, sbLogs );
         }
     }
 
     /**
-     * Process the indexing
+     * Process a page of actions
      * 
-     * @param bCreate
-     *            tell if it's total indexing or total (total = true)
-     * @return the result log of the indexing
+     * @param actions
+     *            the actions, ordered by creation
+     * @param strWebappNameEscaped
+     *            the escaped name of the webapp
+     * @param plugin
+     *            the plugin
      */
-    public static synchronized String processIndexing( boolean bCreate )
+    private static void processIndexingActions( Collection<SolrIndexerAction> actions, String strWebappNameEscaped, Plugin plugin )
     {
-        // String buffer for building the response page
-        _sbLogs = new StringBuilder( );
-        boolean bCreateIndex = bCreate;
-        String strWebappNameEscaped = ClientUtils.escapeQueryChars( getWebAppName( ) );
+        List<SolrIndexerAction> listDeleteActions = new ArrayList<>( );
+        List<SolrIndexerAction> listOtherActions = new ArrayList<>( );
 
-        try
+        for ( SolrIndexerAction action : actions )
         {
-            Date start = new Date( );
-
-            if ( bCreateIndex )
+            if ( ( action.getIdTask( ) == IndexerAction.TASK_DELETE ) && ( action.getIdPortlet( ) == IndexationService.ALL_DOCUMENT ) )
             {
-                processFullIndexing( strWebappNameEscaped );
+                listDeleteActions.add( action );
             }
             else
             {
-                processIncrementalIndexing( strWebappNameEscaped );
+                listOtherActions.add( action );
             }
+        }
 
-            SOLR_SERVER.commit( );
-            SOLR_SERVER.optimize( );
+        // the deletions are applied first : an action created after a deletion of the same resource must not be undone
+        processDeleteActions( listDeleteActions, plugin );
 
-            Date end = new Date( );
-            _sbLogs.append( "Duration of the treatment : " );
-            _sbLogs.append( end.getTime( ) - start.getTime( ) );
-            _sbLogs.append( " milliseconds\r\n" );
+        for ( SolrIndexerAction action : listOtherActions )
+        {
+            processIndexingAction( action, strWebappNameEscaped );
         }
-        catch( Exception e )
+    }
+
+    /**
+     * Returns the identifier of this node in the leases of the actions : the property solr.indexer.node.id, or the name of the JVM (pid@host)
+     * 
+     * @return the identifier of the node
+     */
+    private static String getNodeId( )
+    {
+        String strNodeId = AppPropertiesService.getProperty( PROPERTY_NODE_ID );
+
+        if ( StringUtils.isBlank( strNodeId ) )
         {
-            _sbLogs.append( " caught a " );
-            _sbLogs.append( e.getClass( ) );
-            _sbLogs.append( "\r\n with message: " );
-            _sbLogs.append( e.getMessage( ) );
-            _sbLogs.append( "\r\n See error logs for the stacktrace.\r\n" );
-            AppLogService.error( "Indexing error : " + e.getMessage( ), e );
+            strNodeId = ManagementFactory.getRuntimeMXBean( ).getName( );
         }
 
-        return _sbLogs.toString( );
+        return StringUtils.left( strNodeId, NODE_ID_MAX_LENGTH );
     }
 
-    private static void processFullIndexing( String strWebappNameEscaped ) throws SolrServerException, IOException
+    /**
+     * Build the owner of a new lease, unique for each claim of a page
+     * 
+     * @param strNodeId
+     *            the identifier of the node
+     * @return the owner of the lease
+     */
+    private static String newLeaseOwner( String strNodeId )
     {
-        Plugin plugin = PluginService.getPlugin( SolrPlugin.PLUGIN_NAME );
-
-        _sbLogs.append( "\r\nIndexing all contents ...\r\n" );
+        return strNodeId + "/" + UUID.randomUUID( );
+    }
 
-        // Remove all indexed values of this site
-        SOLR_SERVER.deleteByQuery( SearchItem.FIELD_UID + ":" + strWebappNameEscaped + SolrConstants.CONSTANT_UNDERSCORE + SolrConstants.CONSTANT_WILDCARD );
+    /**
+     * Keep only the last action of each resource and portlet. A deletion of a resource for all the portlets supersedes the previous actions of every portlet.
+     * The superseded actions are removed from the database.
+     * 
+     * @param listActions
+     *            the actions, ordered by creation
+     * @param plugin
+     *            the plugin
+     * @return the remaining actions, ordered by creation
+     */
+    private static List<SolrIndexerAction> coalesceActions( List<SolrIndexerAction> listActions, Plugin plugin )
+    {
+        Map<String, Map<Integer, SolrIndexerAction>> mapActionsByResource = new HashMap<>( );
 
-        for ( SolrIndexer solrIndexer : INDEXERS )
+        for ( SolrIndexerAction action : listActions )
         {
-            if ( solrIndexer.isEnable( ) )
-            {
-                _sbLogs.append( "\r\n<strong>Indexer : " );
-                _sbLogs.append( solrIndexer.getName( ) );
-                _sbLogs.append( " - " );
-                _sbLogs.append( solrIndexer.getDescription( ) );
-                _sbLogs.append( LOG_CLOSE_STRONG );
+            Map<Integer, SolrIndexerAction> mapActionsByPortlet = mapActionsByResource.computeIfAbsent(
+                    action.getTypeResource( ) + SolrConstants.CONSTANT_COLON + action.getIdDocument( ), strKey -> new HashMap<>( ) );
 
-                // the indexer will call write(doc)
-                List<String> lstErrors = solrIndexer.indexDocuments( );
-
-                if ( lstErrors != null )
+            if ( ( action.getIdTask( ) == IndexerAction.TASK_DELETE ) && ( action.getIdPortlet( ) == IndexationService.ALL_DOCUMENT ) )
+            {
+                for ( SolrIndexerAction superseded : mapActionsByPortlet.values( ) )
                 {
-                    for ( String strError : lstErrors )
-                    {
-                        _sbLogs.append( "<strong>ERROR : " );
-                        _sbLogs.append( strError );
-                        _sbLogs.append( LOG_CLOSE_STRONG );
-                    }
+                    SolrIndexerActionHome.remove( superseded.getIdAction( ), plugin );
                 }
-            }
-        }
 
-        // Remove all actions of the database
-        SolrIndexerActionHome.removeAll( plugin );
-    }
+                mapActionsByPortlet.clear( );
+            }
 
-    private static void processIncrementalIndexing( String strWebappNameEscaped ) throws SolrServerException, IOException
-    {
-        Plugin plugin = PluginService.getPlugin( SolrPlugin.PLUGIN_NAME );
+            SolrIndexerAction superseded = mapActionsByPortlet.put( action.getIdPortlet( ), action );
 
-        _sbLogs.append( "\r\nIncremental Indexing ...\r\n" );
+            if ( superseded != null )
+            {
+                SolrIndexerActionHome.remove( superseded.getIdAction( ), plugin );
+            }
+        }
 
-        // incremental indexing
-        Collection<SolrIndexerAction> actions = SolrIndexerActionHome.getList( plugin );
+        List<SolrIndexerAction> listCoalescedActions = new ArrayList<>( );
 
-        for ( SolrIndexerAction action : actions )
+        for ( Map<Integer, SolrIndexerAction> mapActionsByPortlet : mapActionsByResource.values( ) )
         {
-            processIndexingAction( action, strWebappNameEscaped );
+            listCoalescedActions.addAll( mapActionsByPortlet.values( ) );
         }
 
-        // reindexing all pages.
-        SOLR_SERVER.deleteByQuery( SearchItem.FIELD_TYPE + ":" + PARAM_TYPE_PAGE + " AND " + SearchItem.FIELD_UID + ":" + strWebappNameEscaped
-                + SolrConstants.CONSTANT_UNDERSCORE + SolrConstants.CONSTANT_WILDCARD );
+        listCoalescedActions.sort( Comparator.comparingInt( SolrIndexerAction::getIdAction ) );
 
-        for ( SolrIndexer indexer : INDEXERS )
-        {
-            if ( indexer.isEnable( ) && SolrPageIndexer.NAME.equals( indexer.getName( ) ) )
-            {
-                indexer.indexDocuments( );
-
-                break;
-            }
-        }
+        return listCoalescedActions;
     }
 
     private static void processIndexingAction( SolrIndexerAction action, String strWebappNameEscaped )
@@ -339,33 +1561,27 @@ public final class SolrIndexerService
 
             if ( indexer == null )
             {
-                _sbLogs.append( LOG_ERROR );
-                _sbLogs.append( " No indexer found for the resource name : " ).append( action.getTypeResource( ) );
-                _sbLogs.append( LOG_CLOSE_STRONG );
+                appendActionError( action, MESSAGE_NO_INDEXER + action.getTypeResource( ) );
 
                 return;
             }
 
             if ( action.getIdTask( ) == IndexerAction.TASK_DELETE )
             {
-                if ( action.getIdPortlet( ) != IndexationService.ALL_DOCUMENT )
-                {
-                    // delete only the index linked to this portlet
-                    SOLR_SERVER.deleteByQuery(
-                            SearchItem.FIELD_DOCUMENT_PORTLET_ID + ":" + action.getIdDocument( ) + "&" + Integer.toString( action.getIdPortlet( ) ) + " AND "
-                                    + SearchItem.FIELD_UID + ":" + strWebappNameEscaped + SolrConstants.CONSTANT_UNDERSCORE + SolrConstants.CONSTANT_WILDCARD );
-                }
-                else
+                // delete only the index linked to this portlet. The deletions for all the portlets are sent by processDeleteActions
+                getUpdateClient( ).deleteByQuery(
+                        SearchItem.FIELD_DOCUMENT_PORTLET_ID + ":" + action.getIdDocument( ) + "&" + Integer.toString( action.getIdPortlet( ) ) + " AND "
+                                + SearchItem.FIELD_UID + ":" + strWebappNameEscaped + SolrConstants.CONSTANT_UNDERSCORE + SolrConstants.CONSTANT_WILDCARD,
+                        SolrCommitPolicy.getPolicy( ).getCommitWithin( ) );
+                // the document may be added again to this portlet with the same content : its fingerprint must not skip it
+                String strUid = indexer.getResourceUid( action.getIdDocument( ), action.getTypeResource( ) );
+
+                if ( strUid != null )
                 {
-                    // delete all index linked to uid. We get the uid of the resource to prefix it like we do during the indexation
-                    SOLR_SERVER.deleteByQuery( SearchItem.FIELD_UID + ":" + strWebappNameEscaped + SolrConstants.CONSTANT_UNDERSCORE
-                            + indexer.getResourceUid( action.getIdDocument( ), action.getTypeResource( ) ) );
+                    SolrFingerprintService.remove( Collections.singletonList( getWebAppName( ) + SolrConstants.CONSTANT_UNDERSCORE + strUid ) );
                 }
 
-                _sbLogs.append( "Deleting " );
-                _sbLogs.append( " #" );
-                _sbLogs.append( action.getIdDocument( ) );
-                _sbLogs.append( "\r\n" );
+                SolrIndexingLog.add( Status.DELETED, action.getTypeResource( ), action.getIdDocument( ), null, null );
             }
             else
             {
@@ -385,40 +1601,145 @@ public final class SolrIndexerService
         }
         catch( Exception e )
         {
-            _sbLogs.append( "\r\n<strong>Action from indexer : " );
-            _sbLogs.append( action.getIndexerName( ) );
-            _sbLogs.append( " Action ID : " ).append( action.getIdAction( ) ).append( " - Document ID : " ).append( action.getIdDocument( ) );
-            _sbLogs.append( LOG_ERROR );
-            _sbLogs.append( e.getMessage( ) )
-                    .append( ( e.getCause( ) != null ) ? ( " : " + e.getCause( ).getMessage( ) ) : SolrConstants.CONSTANT_EMPTY_STRING );
-            _sbLogs.append( LOG_CLOSE_STRONG );
+            appendActionError( action, e );
         }
     }
 
-    private static void indexSolrItem( SolrIndexerAction action, SolrItem item ) throws SolrServerException, IOException
+    /**
+     * Delete the documents of the actions deleting resources for all the portlets with a single request
+     * 
+     * @param listDeleteActions
+     *            the deletion actions
+     * @param plugin
+     *            the plugin
+     */
+    private static void processDeleteActions( List<SolrIndexerAction> listDeleteActions, Plugin plugin )
     {
-        if ( ( action.getIdPortlet( ) == IndexationService.ALL_DOCUMENT )
-                || ( ( item.getDocPortletId( ) != null ) && item.getDocPortletId( ).equals( item.getUid( ) + "&" + action.getIdPortlet( ) ) ) )
+        List<String> listUids = new ArrayList<>( );
+        List<SolrIndexerAction> listProcessedActions = new ArrayList<>( );
+        String strWebappName = getWebAppName( );
+
+        for ( SolrIndexerAction action : listDeleteActions )
         {
-            if ( action.getIdTask( ) == IndexerAction.TASK_CREATE )
+            SolrIndexer indexer = findSolrIndexer( action.getTypeResource( ) );
+
+            if ( indexer == null )
             {
-                _sbLogs.append( "Adding " );
+                appendActionError( action, MESSAGE_NO_INDEXER + action.getTypeResource( ) );
+
+                continue;
             }
-            else
-                if ( action.getIdTask( ) == IndexerAction.TASK_MODIFY )
+
+            try
+            {
+                // We get the uid of the resource to prefix it like we do during the indexation
+                String strUid = indexer.getResourceUid( action.getIdDocument( ), action.getTypeResource( ) );
+
+                if ( strUid != null )
                 {
-                    _sbLogs.append( "Updating " );
+                    listUids.add( strWebappName + SolrConstants.CONSTANT_UNDERSCORE + strUid );
                 }
 
-            SOLR_SERVER.add( solrItem2SolrInputDocument( item ) );
-            SOLR_SERVER.commit( );
+                listProcessedActions.add( action );
+            }
+            catch( Exception e )
+            {
+                appendActionError( action, e );
+            }
+        }
 
-            _sbLogs.append( item.getType( ) );
-            _sbLogs.append( " #" );
-            _sbLogs.append( item.getUid( ) );
-            _sbLogs.append( " - " );
-            _sbLogs.append( item.getTitle( ) );
-            _sbLogs.append( "\r\n" );
+        if ( listProcessedActions.isEmpty( ) )
+        {
+            return;
+        }
+
+        try
+        {
+            if ( !listUids.isEmpty( ) )
+            {
+                getUpdateClient( ).deleteById( listUids, SolrCommitPolicy.getPolicy( ).getCommitWithin( ) );
+                SolrFingerprintService.remove( listUids );
+            }
+        }
+        catch( Exception e )
+        {
+            // the actions are kept to be processed again by a next run, after their backoff delay
+            _sbLogs.append( "\r\n<strong>Deletion of " ).append( listUids.size( ) ).append( " documents" );
+            printIndexMessage( e, _sbLogs );
+
+            for ( SolrIndexerAction action : listProcessedActions )
+            {
+                SolrIndexingMetrics.getCurrent( ).addErrors( 1 );
+                SolrIndexerActionRetryService.fail( action, buildActionErrorMessage( e ) );
+            }
+
+            return;
+        }
+
+        for ( SolrIndexerAction action : listProcessedActions )
+        {
+            SolrIndexingLog.add( Status.DELETED, action.getTypeResource( ), action.getIdDocument( ), null, null );
+            SolrIndexerActionHome.remove( action.getIdAction( ), plugin );
+        }
+    }
+
+    /**
+     * Append the error of an action to the logs
+     * 
+     * @param action
+     *            the action
+     * @param e
+     *            the error
+     */
+    private static void appendActionError( SolrIndexerAction action, Exception e )
+    {
+        appendActionError( action, buildActionErrorMessage( e ) );
+    }
+
+    /**
+     * Append the error of an action to the logs, and postpone the action or give it up
+     * 
+     * @param action
+     *            the action
+     * @param strError
+     *            the error message
+     */
+    private static void appendActionError( SolrIndexerAction action, String strError )
+    {
+        SolrIndexingMetrics.getCurrent( ).addErrors( 1 );
+        _sbLogs.append( "\r\n<strong>Action from indexer : " );
+        _sbLogs.append( action.getIndexerName( ) );
+        _sbLogs.append( " Action ID : " ).append( action.getIdAction( ) ).append( " - Document ID : " ).append( action.getIdDocument( ) );
+        _sbLogs.append( LOG_ERROR );
+        _sbLogs.append( strError );
+
+        if ( SolrIndexerActionRetryService.fail( action, strError ) )
+        {
+            _sbLogs.append( " - Given up after " ).append( action.getAttempts( ) ).append( " attempts" );
+        }
+
+        _sbLogs.append( LOG_CLOSE_STRONG );
+    }
+
+    /**
+     * Build the error message of a failed action
+     * 
+     * @param e
+     *            the error
+     * @return the message of the error and of its cause
+     */
+    private static String buildActionErrorMessage( Exception e )
+    {
+        return e.getMessage( ) + ( ( e.getCause( ) != null ) ? ( " : " + e.getCause( ).getMessage( ) ) : SolrConstants.CONSTANT_EMPTY_STRING );
+    }
+
+    private static void indexSolrItem( SolrIndexerAction action, SolrItem item ) throws SolrServerException, IOException
+    {
+        if ( ( action.getIdPortlet( ) == IndexationService.ALL_DOCUMENT )
+                || ( ( item.getDocPortletId( ) != null ) && item.getDocPortletId( ).equals( item.getUid( ) + "&" + action.getIdPortlet( ) ) ) )
+        {
+            // the documents are committed at the end of the run, according to the commit policy
+            sendDocument( item, SolrIndexingMetrics.getCurrent( ) );
         }
     }
 
@@ -540,6 +1861,12 @@ public final class SolrIndexerService
         solrInputDocument.addField( SolrItem.FIELD_FILE_CONTENT, solrItem.getFileContent( ) );
         solrInputDocument.addField( SolrItem.FIELD_ID_RESOURCE, solrItem.getIdResource( ) );
         solrInputDocument.addField( SearchItem.FIELD_DOCUMENT_PORTLET_ID, solrItem.getDocPortletId( ) );
+
+        if ( isGenerationStrategy( ) )
+        {
+            solrInputDocument.addField( SolrItem.FIELD_INDEXING_GENERATION, getIndexingGeneration( ) );
+        }
+
         // Add the dynamic fields
         // They must be declared into the schema.xml of the solr server
         Map<String, Object> mapDynamicFields = solrItem.getDynamicFields( );
@@ -559,6 +1886,55 @@ public final class SolrIndexerService
         return solrInputDocument;
     }
 
+    /**
+     * Build the partial update of the document of an item, replacing the values of some fields with the values of the item. The fields missing from the item
+     * are removed from the document.
+     * 
+     * @param solrItem
+     *            the item
+     * @param listFields
+     *            the names of the fields to update, including dynamic fields
+     * @return the partial update, which can be completed with other modifiers
+     */
+    public static SolrPartialUpdate solrItem2PartialUpdate( SolrItem solrItem, Collection<String> listFields )
+    {
+        SolrInputDocument solrInputDocument = solrItem2SolrInputDocument( solrItem );
+        SolrPartialUpdate update = new SolrPartialUpdate( solrItem.getUid( ) );
+
+        for ( String strField : listFields )
+        {
+            if ( !SearchItem.FIELD_UID.equals( strField ) )
+            {
+                update.set( strField, solrInputDocument.getFieldValues( strField ) );
+            }
+        }
+
+        return update;
+    }
+
+    /**
+     * Tells whether the full indexing uses the generation strategy. Only then the documents are stamped with a generation.
+     * 
+     * @return true if the documents are stamped with a generation
+     */
+    static boolean isGenerationStrategy( )
+    {
+        return STRATEGY_GENERATION.equalsIgnoreCase( AppPropertiesService.getProperty( PROPERTY_FULL_STRATEGY, StringUtils.EMPTY ).trim( ) );
+    }
+
+    /**
+     * Returns the generation stamped on the documents. During a full indexing, it is the generation of the run. Otherwise the current time is used, so that
+     * the documents indexed outside of a full indexing are never older than the generation of a running full indexing.
+     * 
+     * @return the generation
+     */
+    static long getIndexingGeneration( )
+    {
+        long lGeneration = _lRunGeneration;
+
+        return ( lGeneration > 0 ) ? lGeneration : System.currentTimeMillis( );
+    }
+
     /**
      * Initialize the indexers List.
      * 
@@ -630,8 +2006,9 @@ public final class SolrIndexerService
         try
         {
             SOLR_SERVER.deleteByQuery( SolrItem.FIELD_SITE + ":\"" + strSite + "\"" );
-            SOLR_SERVER.commit( );
-            SOLR_SERVER.optimize( );
+            SolrFingerprintService.removeAll( );
+            commitEndOfRun( );
+            SolrMergePolicyService.applyMergePolicy( SOLR_SERVER, _sbLogs );
         }
         catch( Exception e )
         {
@@ -642,9 +2019,16 @@ public final class SolrIndexerService
         return _sbLogs.toString( );
     }
 
+    /**
+     * Returns the logs of the current indexing. When called from an indexer running during a full indexing, the logs of this indexer are returned.
+     * 
+     * @return the logs
+     */
     public static StringBuilder getSbLogs( )
     {
-        return _sbLogs;
+        StringBuilder sbIndexerLogs = INDEXER_LOGS.get( );
+
+        return ( sbIndexerLogs != null ) ? sbIndexerLogs : _sbLogs;
     }
 
     /**
@@ -653,7 +2037,7 @@ public final class SolrIndexerService
      * @param listSolrItem
      *            list of solrItem objects
      */
-    private static void provideExternalFields( Collection<SolrItem> listSolrItem  )
+    static void provideExternalFields( Collection<SolrItem> listSolrItem  )
     {
         for ( ISolrItemExternalFieldProvider provider : SpringContextService.getBeansOfType( ISolrItemExternalFieldProvider.class ) )
         {
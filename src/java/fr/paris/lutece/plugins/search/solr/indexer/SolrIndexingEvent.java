@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.util.Date;
+
+/**
+ *
+ * SolrIndexingEvent : the indexing of a document, kept in the indexing log
+ *
+ */
+public class SolrIndexingEvent
+{
+    /**
+     * Outcome of the indexing of a document
+     */
+    public enum Status
+    {
+        INDEXED,
+        UNCHANGED,
+        PARTIAL_UPDATE,
+        DELETED,
+        ERROR
+    }
+
+    private final long _lSequence;
+    private final long _lDate;
+    private final Status _status;
+    private final String _strType;
+    private final String _strUid;
+    private final String _strTitle;
+    private final String _strMessage;
+
+    /**
+     * Creates a new event
+     *
+     * @param lSequence
+     *            the number of the event in the indexing run
+     * @param status
+     *            the outcome of the indexing
+     * @param strType
+     *            the type of the document
+     * @param strUid
+     *            the uid of the document
+     * @param strTitle
+     *            the title of the document
+     * @param strMessage
+     *            the error message, or null
+     */
+    SolrIndexingEvent( long lSequence, Status status, String strType, String strUid, String strTitle, String strMessage )
+    {
+        _lSequence = lSequence;
+        _lDate = System.currentTimeMillis( );
+        _status = status;
+        _strType = strType;
+        _strUid = strUid;
+        _strTitle = strTitle;
+        _strMessage = strMessage;
+    }
+
+    /**
+     *
+     * @return the number of the event in the indexing run, starting at 1
+     */
+    public long getSequence( )
+    {
+        return _lSequence;
+    }
+
+    /**
+     *
+     * @return the date of the event
+     */
+    public Date getDate( )
+    {
+        return new Date( _lDate );
+    }
+
+    /**
+     *
+     * @return the outcome of the indexing
+     */
+    public Status getStatus( )
+    {
+        return _status;
+    }
+
+    /**
+     *
+     * @return the type of the document
+     */
+    public String getType( )
+    {
+        return _strType;
+    }
+
+    /**
+     *
+     * @return the uid of the document
+     */
+    public String getUid( )
+    {
+        return _strUid;
+    }
+
+    /**
+     *
+     * @return the title of the document
+     */
+    public String getTitle( )
+    {
+        return _strTitle;
+    }
+
+    /**
+     *
+     * @return the error message, or null
+     */
+    public String getMessage( )
+    {
+        return _strMessage;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexingEvent.Status;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * SolrIndexingLog : the last events of the indexing run, kept in a ring buffer of solr.indexer.log.size events, and the number of events of each status
+ * since the start of the run. The memory used does not depend on the number of documents indexed.
+ *
+ */
+public final class SolrIndexingLog
+{
+    private static final String PROPERTY_LOG_SIZE = "solr.indexer.log.size";
+    private static final int DEFAULT_LOG_SIZE = 1000;
+    private static final String PROPERTY_LOG_MAX_ERRORS = "solr.indexer.log.maxErrors";
+    private static final int DEFAULT_LOG_MAX_ERRORS = 100;
+    private static final Object LOCK = new Object( );
+    private static SolrIndexingEvent [ ] _events = new SolrIndexingEvent [ getLogSize( )];
+    private static long _lEventCount;
+    private static final Map<Status, Long> COUNTERS = new EnumMap<>( Status.class );
+
+    /**
+     * Private constructor
+     */
+    private SolrIndexingLog( )
+    {
+    }
+
+    /**
+     * Remove all the events and reset the counters, at the start of an indexing run
+     */
+    static void reset( )
+    {
+        synchronized( LOCK )
+        {
+            _events = new SolrIndexingEvent [ getLogSize( )];
+            _lEventCount = 0;
+            COUNTERS.clear( );
+        }
+    }
+
+    /**
+     * Add the event of a document
+     *
+     * @param status
+     *            the outcome of the indexing
+     * @param solrItem
+     *            the item of the document
+     * @param strMessage
+     *            the error message, or null
+     * @return true if the error must be detailed in the text logs : only the first solr.indexer.log.maxErrors errors of a run are
+     */
+    static boolean add( Status status, SolrItem solrItem, String strMessage )
+    {
+        return add( status, solrItem.getType( ), solrItem.getUid( ), solrItem.getTitle( ), strMessage );
+    }
+
+    /**
+     * Add the event of a document
+     *
+     * @param status
+     *            the outcome of the indexing
+     * @param strType
+     *            the type of the document
+     * @param strUid
+     *            the uid of the document
+     * @param strTitle
+     *            the title of the document
+     * @param strMessage
+     *            the error message, or null
+     * @return true if the error must be detailed in the text logs : only the first solr.indexer.log.maxErrors errors of a run are
+     */
+    static boolean add( Status status, String strType, String strUid, String strTitle, String strMessage )
+    {
+        long lCount;
+
+        synchronized( LOCK )
+        {
+            int nIndex = (int) ( _lEventCount % _events.length );
+            _lEventCount++;
+            _events [nIndex] = new SolrIndexingEvent( _lEventCount, status, strType, strUid, strTitle, strMessage );
+            lCount = COUNTERS.merge( status, 1L, Long::sum );
+        }
+
+        return ( status == Status.ERROR ) && ( lCount <= AppPropertiesService.getPropertyInt( PROPERTY_LOG_MAX_ERRORS, DEFAULT_LOG_MAX_ERRORS ) );
+    }
+
+    /**
+     * Returns the number of events of a status since the start of the run
+     *
+     * @param status
+     *            the status
+     * @return the number of events
+     */
+    public static long getCount( Status status )
+    {
+        synchronized( LOCK )
+        {
+            return COUNTERS.getOrDefault( status, 0L );
+        }
+    }
+
+    /**
+     * Returns the number of events of each status since the start of the run
+     *
+     * @return the number of events by status
+     */
+    public static Map<Status, Long> getCounters( )
+    {
+        Map<Status, Long> mapCounters = new EnumMap<>( Status.class );
+
+        synchronized( LOCK )
+        {
+            for ( Status status : Status.values( ) )
+            {
+                mapCounters.put( status, COUNTERS.getOrDefault( status, 0L ) );
+            }
+        }
+
+        return mapCounters;
+    }
+
+    /**
+     * Returns the number of events kept
+     *
+     * @return the number of events which can be read
+     */
+    public static int getEventCount( )
+    {
+        synchronized( LOCK )
+        {
+            return (int) Math.min( _lEventCount, _events.length );
+        }
+    }
+
+    /**
+     * Returns the number of events kept by the ring buffer
+     *
+     * @return the size of the ring buffer
+     */
+    private static int getLogSize( )
+    {
+        return Math.max( AppPropertiesService.getPropertyInt( PROPERTY_LOG_SIZE, DEFAULT_LOG_SIZE ), 1 );
+    }
+
+    /**
+     * Returns a page of the events kept, the most recent first
+     *
+     * @param nOffset
+     *            the number of recent events to skip
+     * @param nLimit
+     *            the maximum number of events
+     * @return the events
+     */
+    public static List<SolrIndexingEvent> getEvents( int nOffset, int nLimit )
+    {
+        List<SolrIndexingEvent> listEvents = new ArrayList<>( );
+
+        synchronized( LOCK )
+        {
+            long lKept = Math.min( _lEventCount, _events.length );
+
+            for ( long i = Math.max( nOffset, 0 ); ( i < lKept ) && ( listEvents.size( ) < nLimit ); i++ )
+            {
+                int nIndex = (int) ( ( _lEventCount - 1 - i ) % _events.length );
+                listEvents.add( _events [nIndex] );
+            }
+        }
+
+        return listEvents;
+    }
+}
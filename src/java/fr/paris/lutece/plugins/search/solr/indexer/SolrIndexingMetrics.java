@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * SolrIndexingMetrics : registry of the indexing metrics. Each indexer has its own metrics, registered as a JMX MBean; the documents written outside of a
+ * full indexing run of an indexer (incremental indexing, external code) are measured by the metrics of the indexer service.
+ *
+ */
+public final class SolrIndexingMetrics
+{
+    public static final String NAME_INDEXER_SERVICE = "SolrIndexerService";
+    private static final String PROPERTY_JMX_ENABLE = "solr.indexer.metrics.jmx.enable";
+    private static final String JMX_DOMAIN = "fr.paris.lutece.plugins.search.solr";
+    private static final Map<String, SolrIndexerMetrics> METRICS = new ConcurrentHashMap<>( );
+    private static final ThreadLocal<SolrIndexerMetrics> CURRENT_METRICS = new ThreadLocal<>( );
+
+    /**
+     * Private constructor
+     */
+    private SolrIndexingMetrics( )
+    {
+    }
+
+    /**
+     * Returns the metrics of an indexer, created and registered in JMX the first time
+     *
+     * @param strIndexerName
+     *            the name of the indexer
+     * @return the metrics
+     */
+    public static SolrIndexerMetrics get( String strIndexerName )
+    {
+        return METRICS.computeIfAbsent( strIndexerName, strName -> {
+            SolrIndexerMetrics metrics = new SolrIndexerMetrics( strName );
+            register( metrics );
+
+            return metrics;
+        } );
+    }
+
+    /**
+     * Returns the metrics of all the indexers measured since the start of the webapp
+     *
+     * @return the metrics, sorted by indexer name
+     */
+    public static List<SolrIndexerMetrics> getMetricsList( )
+    {
+        List<SolrIndexerMetrics> listMetrics = new ArrayList<>( METRICS.values( ) );
+        listMetrics.sort( Comparator.comparing( SolrIndexerMetrics::getIndexerName ) );
+
+        return listMetrics;
+    }
+
+    /**
+     * Returns the metrics of the indexer running in the current thread, or the metrics of the indexer service
+     *
+     * @return the metrics
+     */
+    static SolrIndexerMetrics getCurrent( )
+    {
+        SolrIndexerMetrics metrics = CURRENT_METRICS.get( );
+
+        return ( metrics != null ) ? metrics : get( NAME_INDEXER_SERVICE );
+    }
+
+    /**
+     * Set the metrics of the indexer running in the current thread
+     *
+     * @param metrics
+     *            the metrics, or null when the indexer is over
+     */
+    static void setCurrent( SolrIndexerMetrics metrics )
+    {
+        if ( metrics != null )
+        {
+            CURRENT_METRICS.set( metrics );
+        }
+        else
+        {
+            CURRENT_METRICS.remove( );
+        }
+    }
+
+    /**
+     * Unregister the metrics from the platform MBean server, so that the MBeans do not keep the class loader of the webapp once it is stopped
+     */
+    public static void unregisterAll( )
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer( );
+
+        for ( SolrIndexerMetrics metrics : METRICS.values( ) )
+        {
+            try
+            {
+                ObjectName name = getObjectName( metrics );
+
+                if ( server.isRegistered( name ) )
+                {
+                    server.unregisterMBean( name );
+                }
+            }
+            catch( JMException e )
+            {
+                AppLogService.error( "Unable to unregister the indexing metrics of " + metrics.getIndexerName( ) + " from JMX", e );
+            }
+        }
+    }
+
+    /**
+     * Register metrics in the platform MBean server, replacing the MBean left by a previous deployment of the webapp
+     *
+     * @param metrics
+     *            the metrics
+     */
+    private static void register( SolrIndexerMetrics metrics )
+    {
+        if ( !AppPropertiesService.getPropertyBoolean( PROPERTY_JMX_ENABLE, true ) )
+        {
+            return;
+        }
+
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer( );
+            ObjectName name = getObjectName( metrics );
+
+            if ( server.isRegistered( name ) )
+            {
+                server.unregisterMBean( name );
+            }
+
+            server.registerMBean( metrics, name );
+        }
+        catch( JMException e )
+        {
+            // the metrics are still shown by the admin page
+            AppLogService.error( "Unable to register the indexing metrics of " + metrics.getIndexerName( ) + " in JMX", e );
+        }
+    }
+
+    /**
+     * Returns the JMX name of metrics
+     *
+     * @param metrics
+     *            the metrics
+     * @return the name
+     * @throws MalformedObjectNameException
+     *             if the name is invalid
+     */
+    private static ObjectName getObjectName( SolrIndexerMetrics metrics ) throws MalformedObjectNameException
+    {
+        return new ObjectName( JMX_DOMAIN + ":type=IndexingMetrics,name=" + ObjectName.quote( metrics.getIndexerName( ) ) );
+    }
+}
@@ -80,6 +80,7 @@ public class SolrItem
     public static final String DYNAMIC_GEOJSON_FIELD_SUFFIX = "_geojson";
     public static final String DYNAMIC_FLOAT_FIELD_SUFFIX = "_float";
     public static final String DYNAMIC_GEOJSON_ADDRESS_FIELD_SUFFIX = "_address";
+    public static final String FIELD_INDEXING_GENERATION = "indexing_generation" + DYNAMIC_LONG_FIELD_SUFFIX;
     private static final String GEOLOC_JSON_PATH_GEOMETRY = "geometry";
     private static final String GEOLOC_JSON_PATH_GEOMETRY_COORDINATES = "coordinates";
     public static final String FIELD_CHILD_DOCUMENTS = "_childDocuments";
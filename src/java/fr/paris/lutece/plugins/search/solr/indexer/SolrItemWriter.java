@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.solr.client.solrj.SolrServerException;
+
+import fr.paris.lutece.plugins.search.solr.business.checkpoint.SolrIndexerCheckpoint;
+import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexerMetrics.Stage;
+import fr.paris.lutece.plugins.search.solr.service.SolrIndexerCheckpointService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * SolrItemWriter : bounded pipeline between an indexer and the Solr server. Items are grouped by chunks of the batch size, then enriched by the external
+ * field providers, converted and sent by three stages. Each stage has its own threads (none by default : the stage runs in the thread of the indexer) and a
+ * bounded queue, so that the slowest stage blocks the previous ones and only a few chunks are kept in memory.
+ *
+ */
+public class SolrItemWriter implements ISolrItemSink, Closeable
+{
+    private static final String PROPERTY_ENRICHMENT_THREADS = "solr.indexer.pipeline.enrichment.threads";
+    private static final String PROPERTY_CONVERSION_THREADS = "solr.indexer.pipeline.conversion.threads";
+    private static final String PROPERTY_SENDER_THREADS = "solr.indexer.pipeline.sender.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "solr.indexer.pipeline.queue.size";
+    private static final int DEFAULT_THREADS = 0;
+    private static final int DEFAULT_QUEUE_SIZE = 2;
+
+    private final StringBuilder _sbLogs;
+    private final int _nCommitSize;
+    private final AtomicInteger _nCount = new AtomicInteger( );
+    private final SolrPipelineStage<List<SolrItem>> _enrichment;
+    private final SolrPipelineStage<List<SolrItem>> _conversion;
+    private final SolrPipelineStage<SolrDocumentBatch> _sender;
+    private List<SolrItem> _listPendingItems = new ArrayList<>( );
+    private SolrIndexerCheckpoint _checkpoint;
+    private int _nCheckpointInterval;
+    private int _nWrittenSinceCheckpoint;
+    private final SolrIndexerMetrics _metrics;
+    private long _lProductionStartNanos;
+
+    /**
+     * Creates a new writer
+     *
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @param nCommitSize
+     *            the number of documents between two commits
+     */
+    SolrItemWriter( StringBuilder sbLogs, int nCommitSize )
+    {
+        _sbLogs = sbLogs;
+        _nCommitSize = Math.max( nCommitSize, 1 );
+        _metrics = SolrIndexingMetrics.getCurrent( );
+        _lProductionStartNanos = System.nanoTime( );
+
+        AtomicReference<Exception> error = new AtomicReference<>( );
+        int nQueueSize = AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE );
+        _sender = new SolrPipelineStage<>( "sender", AppPropertiesService.getPropertyInt( PROPERTY_SENDER_THREADS, DEFAULT_THREADS ), nQueueSize,
+                this::send, error );
+        _conversion = new SolrPipelineStage<>( "conversion", AppPropertiesService.getPropertyInt( PROPERTY_CONVERSION_THREADS, DEFAULT_THREADS ),
+                nQueueSize, this::convert, error );
+        _enrichment = new SolrPipelineStage<>( "enrichment", AppPropertiesService.getPropertyInt( PROPERTY_ENRICHMENT_THREADS, DEFAULT_THREADS ),
+                nQueueSize, this::enrich, error );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( SolrItem solrItem ) throws IOException
+    {
+        endProduction( );
+
+        try
+        {
+            _listPendingItems.add( solrItem );
+            _nWrittenSinceCheckpoint++;
+
+            if ( _listPendingItems.size( ) >= SolrIndexerService.getBatchSize( ) )
+            {
+                List<SolrItem> listChunk = _listPendingItems;
+                _listPendingItems = new ArrayList<>( );
+                _enrichment.submit( listChunk );
+            }
+        }
+        finally
+        {
+            _lProductionStartNanos = System.nanoTime( );
+        }
+    }
+
+    /**
+     * Record the progress of the indexer in its checkpoint, every solr.indexer.checkpoint.interval items. The pipeline is drained first, so that the
+     * resources recorded have all been sent.
+     *
+     * @param strResourceId
+     *            the id of the last resource whose items have all been written
+     * @throws IOException
+     *             i/o exception, or the first error of a stage
+     */
+    @Override
+    public void checkpoint( String strResourceId ) throws IOException
+    {
+        if ( ( _checkpoint == null ) || ( _nWrittenSinceCheckpoint < _nCheckpointInterval ) )
+        {
+            return;
+        }
+
+        endProduction( );
+
+        try
+        {
+            if ( !_listPendingItems.isEmpty( ) )
+            {
+                _enrichment.submit( _listPendingItems );
+                _listPendingItems = new ArrayList<>( );
+            }
+
+            _enrichment.drain( );
+            _conversion.drain( );
+            _sender.drain( );
+            _sender.checkError( );
+            SolrIndexerService.waitForUpdates( );
+
+            _checkpoint.setLastResourceId( strResourceId );
+            SolrIndexerCheckpointService.save( _checkpoint );
+            _nWrittenSinceCheckpoint = 0;
+        }
+        finally
+        {
+            _lProductionStartNanos = System.nanoTime( );
+        }
+    }
+
+    /**
+     * Add the time spent by the indexer to produce items since the last call of the writer
+     */
+    private void endProduction( )
+    {
+        _metrics.addTime( Stage.PRODUCTION, System.nanoTime( ) - _lProductionStartNanos );
+    }
+
+    /**
+     * Record the progress of the indexer in a checkpoint
+     *
+     * @param checkpoint
+     *            the checkpoint of the indexer
+     */
+    void setCheckpoint( SolrIndexerCheckpoint checkpoint )
+    {
+        _checkpoint = checkpoint;
+        _nCheckpointInterval = SolrIndexerCheckpointService.getInterval( );
+    }
+
+    /**
+     * Send the buffered items, wait for the end of the stages and commit
+     *
+     * @throws IOException
+     *             i/o exception, or the first error of a stage
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        endProduction( );
+
+        try
+        {
+            if ( !_listPendingItems.isEmpty( ) )
+            {
+                _enrichment.submit( _listPendingItems );
+                _listPendingItems = new ArrayList<>( );
+            }
+        }
+        finally
+        {
+            try
+            {
+                _enrichment.close( );
+            }
+            finally
+            {
+                try
+                {
+                    _conversion.close( );
+                }
+                finally
+                {
+                    _sender.close( );
+                }
+            }
+        }
+
+        _sender.checkError( );
+        commit( );
+    }
+
+    /**
+     * Enrichment stage : call the external field providers
+     *
+     * @param listItems
+     *            a chunk of items
+     * @throws IOException
+     *             if the pipeline has failed
+     */
+    private void enrich( List<SolrItem> listItems ) throws IOException
+    {
+        long lStart = System.nanoTime( );
+        SolrIndexerService.provideExternalFields( listItems );
+        _metrics.addTime( Stage.ENRICHMENT, System.nanoTime( ) - lStart );
+        _conversion.submit( listItems );
+    }
+
+    /**
+     * Conversion stage : convert the items into documents, grouped by batches
+     *
+     * @param listItems
+     *            a chunk of items
+     * @throws IOException
+     *             if the pipeline has failed
+     */
+    private void convert( List<SolrItem> listItems ) throws IOException
+    {
+        StringBuilder sbLogs = new StringBuilder( );
+        SolrDocumentBatch batch = SolrIndexerService.newBatch( );
+
+        try
+        {
+            for ( SolrItem solrItem : listItems )
+            {
+                long lStart = System.nanoTime( );
+
+                if ( !SolrIndexerService.addToBatch( solrItem, batch, sbLogs ) )
+                {
+                    _metrics.addErrors( 1 );
+                }
+
+                _metrics.addTime( Stage.CONVERSION, System.nanoTime( ) - lStart );
+
+                if ( batch.isFull( ) )
+                {
+                    _sender.submit( batch );
+                    batch = SolrIndexerService.newBatch( );
+                }
+            }
+
+            if ( !batch.isEmpty( ) )
+            {
+                _sender.submit( batch );
+            }
+        }
+        finally
+        {
+            appendLogs( sbLogs );
+        }
+    }
+
+    /**
+     * Sender stage : send a batch of documents, and commit every commit size documents
+     *
+     * @param batch
+     *            the batch
+     * @throws IOException
+     *             i/o exception
+     */
+    private void send( SolrDocumentBatch batch ) throws IOException
+    {
+        StringBuilder sbLogs = new StringBuilder( );
+        int nSize = batch.getItems( ).size( );
+        long lBytes = batch.getBytes( );
+        long lStart = System.nanoTime( );
+
+        int nErrors = SolrIndexerService.flushBatch( batch, sbLogs );
+        _metrics.addTime( Stage.SOLR_ADD, System.nanoTime( ) - lStart );
+        _metrics.addDocuments( nSize - nErrors, lBytes );
+        _metrics.addErrors( nErrors );
+        appendLogs( sbLogs );
+
+        int nCount = _nCount.addAndGet( nSize );
+
+        if ( ( nCount / _nCommitSize ) > ( ( nCount - nSize ) / _nCommitSize ) )
+        {
+            commit( );
+        }
+    }
+
+    /**
+     * Append the logs of a stage to the logs of the writer
+     *
+     * @param sbLogs
+     *            the logs of the stage
+     */
+    private void appendLogs( StringBuilder sbLogs )
+    {
+        if ( sbLogs.length( ) > 0 )
+        {
+            synchronized( _sbLogs )
+            {
+                _sbLogs.append( sbLogs );
+            }
+        }
+    }
+
+    /**
+     * Commit the documents sent
+     *
+     * @throws IOException
+     *             i/o exception
+     */
+    private void commit( ) throws IOException
+    {
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            SolrIndexerService.commit( );
+        }
+        catch( SolrServerException e )
+        {
+            throw new IOException( e.getMessage( ), e );
+        }
+        finally
+        {
+            _metrics.addTime( Stage.COMMIT, System.nanoTime( ) - lStart );
+        }
+    }
+}
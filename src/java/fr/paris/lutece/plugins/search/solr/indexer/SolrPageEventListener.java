@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import fr.paris.lutece.plugins.search.solr.business.indexeraction.SolrIndexerAction;
+import fr.paris.lutece.plugins.search.solr.business.indexeraction.SolrIndexerActionHome;
+import fr.paris.lutece.plugins.search.solr.service.SolrPlugin;
+import fr.paris.lutece.portal.business.indexeraction.IndexerAction;
+import fr.paris.lutece.portal.service.page.PageEvent;
+import fr.paris.lutece.portal.service.page.PageEventListener;
+import fr.paris.lutece.portal.service.search.IndexationService;
+
+/**
+ * Queues an indexer action for each page event, so that the incremental indexing only renders the pages which changed.
+ */
+public class SolrPageEventListener implements PageEventListener
+{
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void processPageEvent( PageEvent event )
+    {
+        if ( event.getPage( ) == null )
+        {
+            return;
+        }
+
+        SolrIndexerAction indexerAction = new SolrIndexerAction( );
+
+        switch( event.getEventType( ) )
+        {
+            case PageEvent.PAGE_CREATED:
+                indexerAction.setIdTask( IndexerAction.TASK_CREATE );
+                break;
+            case PageEvent.PAGE_DELETED:
+                indexerAction.setIdTask( IndexerAction.TASK_DELETE );
+                break;
+            default:
+                indexerAction.setIdTask( IndexerAction.TASK_MODIFY );
+                break;
+        }
+
+        indexerAction.setIdDocument( String.valueOf( event.getPage( ).getId( ) ) );
+        indexerAction.setIdPortlet( IndexationService.ALL_DOCUMENT );
+        indexerAction.setTypeResource( SolrPageIndexer.RESSOURCE_PAGE );
+        SolrIndexerActionHome.create( indexerAction, SolrPlugin._plugin );
+    }
+}
@@ -33,22 +33,28 @@
  */
 package fr.paris.lutece.plugins.search.solr.indexer;
 
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
-
-import org.xml.sax.ContentHandler;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import fr.paris.lutece.plugins.search.solr.business.field.Field;
-import fr.paris.lutece.plugins.search.solr.util.LuteceSolrException;
+import fr.paris.lutece.plugins.search.solr.util.HtmlTextExtractor;
 import fr.paris.lutece.plugins.search.solr.util.LuteceSolrRuntimeException;
 import fr.paris.lutece.plugins.search.solr.util.SolrConstants;
-import fr.paris.lutece.plugins.search.solr.util.TikaIndexerUtil;
 import fr.paris.lutece.portal.business.page.Page;
 import fr.paris.lutece.portal.business.page.PageHome;
 import fr.paris.lutece.portal.service.message.SiteMessageException;
 import fr.paris.lutece.portal.service.page.IPageService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
-import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.url.UrlItem;
@@ -57,7 +63,7 @@ import fr.paris.lutece.util.url.UrlItem;
  * The indexer service for Solr.
  *
  */
-public class SolrPageIndexer implements SolrIndexer
+public class SolrPageIndexer implements ISolrStreamingIndexer
 {
     public static final String RESSOURCE_PAGE = "PAGE_PAGE";
     public static final String NAME = "SolrPageIndexer";
@@ -67,6 +73,8 @@ public class SolrPageIndexer implements SolrIndexer
     private static final String TYPE = "PAGE";
     private static final String CATEGORIE = "Html";
     private static final String PROPERTY_INDEXER_ENABLE = "solr.indexer.page.enable";
+    private static final String PROPERTY_INDEXER_THREADS = "solr.indexer.page.threads";
+    private static final int DEFAULT_INDEXER_THREADS = 1;
     private static final String BEAN_PAGE_SERVICE = "pageService";
     private static final String SHORT_NAME = "page";
     private static final List<String> LIST_RESSOURCES_NAME = new ArrayList<>( );
@@ -85,36 +93,181 @@ public class SolrPageIndexer implements SolrIndexer
      */
     public List<String> indexDocuments( )
     {
-        List<Page> listPages = PageHome.getAllPages( );
         List<String> lstErrors = new ArrayList<>( );
-        List<SolrItem> lstSolrItems = new ArrayList<>( );
+
+        try ( SolrItemWriter writer = SolrIndexerService.openWriter( ) )
+        {
+            lstErrors = indexDocuments( writer );
+        }
+        catch( Exception e )
+        {
+            lstErrors.add( SolrIndexerService.buildErrorMessage( e ) );
+            AppLogService.error( PAGE_INDEXATION_ERROR, e );
+        }
+
+        return lstErrors;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> indexDocuments( ISolrItemSink sink )
+    {
+        return indexDocuments( sink, null );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> indexDocuments( ISolrItemSink sink, String strLastResourceId )
+    {
+        List<Page> listPages = getPagesAfter( strLastResourceId );
+        List<String> lstErrors = new ArrayList<>( );
+        String strBaseUrl = SolrIndexerService.getBaseUrl( );
+        int nThreads = AppPropertiesService.getPropertyInt( PROPERTY_INDEXER_THREADS, DEFAULT_INDEXER_THREADS );
+
+        if ( nThreads > 1 )
+        {
+            indexDocuments( sink, listPages, strBaseUrl, nThreads, lstErrors );
+
+            return lstErrors;
+        }
 
         for ( Page page : listPages )
         {
             try
             {
-                // Generates the item to index
-                SolrItem item = getItem( page, SolrIndexerService.getBaseUrl( ) );
-                lstSolrItems.add( item );
+                // Generates the item to index and hands it to the sink right away
+                sink.write( getItem( page, strBaseUrl ) );
+                sink.checkpoint( String.valueOf( page.getId( ) ) );
             }
             catch( Exception e )
             {
-                lstErrors.add( PAGE_INDEXATION_ERROR + page.getId( ) + " : " + SolrIndexerService.buildErrorMessage( e ) );
-                AppLogService.error( PAGE_INDEXATION_ERROR + page.getId( ), e );
+                addPageError( page, e, lstErrors );
+            }
+        }
+
+        return lstErrors;
+    }
+
+    /**
+     * Returns the pages to index, in the order of their ids
+     *
+     * @param strLastResourceId
+     *            the id of the last page indexed by an interrupted run, or null to index all the pages
+     * @return the pages following the last page indexed
+     */
+    private List<Page> getPagesAfter( String strLastResourceId )
+    {
+        List<Page> listPages = new ArrayList<>( );
+        int nLastPageId = ( strLastResourceId != null ) ? Integer.parseInt( strLastResourceId ) : Integer.MIN_VALUE;
+
+        for ( Page page : PageHome.getAllPages( ) )
+        {
+            if ( page.getId( ) > nLastPageId )
+            {
+                listPages.add( page );
+            }
+        }
+
+        listPages.sort( Comparator.comparingInt( Page::getId ) );
+
+        return listPages;
+    }
+
+    /**
+     * Render and parse the pages with a pool of threads. The items are handed to the sink in the order of the pages, and at most twice the number of threads
+     * pages are rendered ahead of the sink.
+     *
+     * @param sink
+     *            the sink receiving the items
+     * @param listPages
+     *            the pages
+     * @param strBaseUrl
+     *            The base URL for documents
+     * @param nThreads
+     *            the number of pages rendered at the same time
+     * @param lstErrors
+     *            the errors of the pages
+     */
+    private void indexDocuments( ISolrItemSink sink, List<Page> listPages, String strBaseUrl, int nThreads, List<String> lstErrors )
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( nThreads );
+        Deque<Entry<Page, Future<SolrItem>>> dequePendingPages = new ArrayDeque<>( );
+
+        try
+        {
+            for ( Page page : listPages )
+            {
+                dequePendingPages.add( new SimpleImmutableEntry<>( page, executor.submit( ( ) -> getItem( page, strBaseUrl ) ) ) );
+
+                if ( dequePendingPages.size( ) >= ( 2 * nThreads ) )
+                {
+                    writeItem( sink, dequePendingPages.poll( ), lstErrors );
+                }
             }
+
+            while ( !dequePendingPages.isEmpty( ) )
+            {
+                writeItem( sink, dequePendingPages.poll( ), lstErrors );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            lstErrors.add( PAGE_INDEXATION_ERROR + "interrupted" );
+        }
+        finally
+        {
+            executor.shutdownNow( );
         }
+    }
 
+    /**
+     * Wait for the item of a page and hand it to the sink
+     *
+     * @param sink
+     *            the sink receiving the items
+     * @param pendingPage
+     *            the page and its item
+     * @param lstErrors
+     *            the errors of the pages
+     * @throws InterruptedException
+     *             if the wait is interrupted
+     */
+    private void writeItem( ISolrItemSink sink, Entry<Page, Future<SolrItem>> pendingPage, List<String> lstErrors ) throws InterruptedException
+    {
         try
         {
-            SolrIndexerService.write( lstSolrItems );
+            sink.write( pendingPage.getValue( ).get( ) );
+            sink.checkpoint( String.valueOf( pendingPage.getKey( ).getId( ) ) );
         }
-        catch( Exception e )
+        catch( ExecutionException e )
         {
-            lstErrors.add( SolrIndexerService.buildErrorMessage( e ) );
-            AppLogService.error( PAGE_INDEXATION_ERROR, e );
+            addPageError( pendingPage.getKey( ), ( e.getCause( ) instanceof Exception ) ? (Exception) e.getCause( ) : e, lstErrors );
         }
+        catch( IOException e )
+        {
+            addPageError( pendingPage.getKey( ), e, lstErrors );
+        }
+    }
 
-        return lstErrors;
+    /**
+     * Record the error of a page
+     *
+     * @param page
+     *            the page
+     * @param e
+     *            the error
+     * @param lstErrors
+     *            the errors of the pages
+     */
+    private void addPageError( Page page, Exception e, List<String> lstErrors )
+    {
+        lstErrors.add( PAGE_INDEXATION_ERROR + page.getId( ) + " : " + SolrIndexerService.buildErrorMessage( e ) );
+        AppLogService.error( PAGE_INDEXATION_ERROR + page.getId( ), e );
     }
 
     /**
@@ -137,17 +290,8 @@ public class SolrPageIndexer implements SolrIndexer
         // indexing page content
         IPageService pageService = SpringContextService.getBean( BEAN_PAGE_SERVICE );
         String strPageContent = pageService.getPageContent( page.getId( ), 0, null );
-        try
-        {
-            ContentHandler handler = TikaIndexerUtil.parseHtml( strPageContent );
-            // the content of the article is recovered in the parser because this one
-            // had replaced the encoded caracters (as &eacute;) by the corresponding special caracter (as ?)
-            item.setContent( handler.toString( ) );
-        }
-        catch( LuteceSolrException e )
-        {
-            throw new AppException( "Error during page parsing.", e );
-        }
+        // the text is read from the page itself : the encoded caracters (as &eacute;) are replaced by the corresponding special caracter
+        item.setContent( HtmlTextExtractor.extract( strPageContent ) );
 
         item.setTitle( page.getName( ) );
         item.setRole( page.getRole( ) );
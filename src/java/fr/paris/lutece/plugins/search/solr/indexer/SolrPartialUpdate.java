@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.solr.common.SolrInputDocument;
+
+import fr.paris.lutece.plugins.search.solr.util.SolrConstants;
+import fr.paris.lutece.portal.service.search.SearchItem;
+
+/**
+ *
+ * SolrPartialUpdate : the modification of some fields of an indexed document. It is sent as an atomic update, so that the other fields of the document, like
+ * the content, are not sent again. All the fields of the document must be stored by the Solr server.
+ *
+ */
+public class SolrPartialUpdate
+{
+    /**
+     * Replace the values of the field, or remove the field if the value is null
+     */
+    public static final String MODIFIER_SET = "set";
+
+    /**
+     * Add values to a multivalued field
+     */
+    public static final String MODIFIER_ADD = "add";
+
+    /**
+     * Remove values from a multivalued field
+     */
+    public static final String MODIFIER_REMOVE = "remove";
+
+    private final String _strUid;
+    private final Map<String, Map<String, Object>> _mapFields = new LinkedHashMap<>( );
+
+    /**
+     * Creates the update of a document
+     *
+     * @param strUid
+     *            the uid of the item of the document, without the prefix of the site
+     */
+    public SolrPartialUpdate( String strUid )
+    {
+        _strUid = strUid;
+    }
+
+    /**
+     * Replace the values of a field
+     *
+     * @param strField
+     *            the name of the field
+     * @param value
+     *            the new value, a collection for a multivalued field, or null to remove the field
+     * @return this update
+     */
+    public SolrPartialUpdate set( String strField, Object value )
+    {
+        return modify( MODIFIER_SET, strField, value );
+    }
+
+    /**
+     * Add values to a multivalued field
+     *
+     * @param strField
+     *            the name of the field
+     * @param value
+     *            the value or a collection of values
+     * @return this update
+     */
+    public SolrPartialUpdate add( String strField, Object value )
+    {
+        return modify( MODIFIER_ADD, strField, value );
+    }
+
+    /**
+     * Remove values from a multivalued field
+     *
+     * @param strField
+     *            the name of the field
+     * @param value
+     *            the value or a collection of values
+     * @return this update
+     */
+    public SolrPartialUpdate remove( String strField, Object value )
+    {
+        return modify( MODIFIER_REMOVE, strField, value );
+    }
+
+    /**
+     * Returns the uid of the item of the document
+     *
+     * @return the uid, without the prefix of the site
+     */
+    public String getUid( )
+    {
+        return _strUid;
+    }
+
+    /**
+     * Tells whether the update modifies no field
+     *
+     * @return true if no field is modified
+     */
+    public boolean isEmpty( )
+    {
+        return _mapFields.isEmpty( );
+    }
+
+    /**
+     * Convert the update into an atomic update document. With the generation strategy, the generation of the document is updated too.
+     *
+     * @return the document
+     */
+    public SolrInputDocument toSolrInputDocument( )
+    {
+        SolrInputDocument solrInputDocument = new SolrInputDocument( );
+        solrInputDocument.addField( SearchItem.FIELD_UID, SolrIndexerService.getWebAppName( ) + SolrConstants.CONSTANT_UNDERSCORE + _strUid );
+
+        for ( Entry<String, Map<String, Object>> field : _mapFields.entrySet( ) )
+        {
+            solrInputDocument.addField( field.getKey( ), field.getValue( ) );
+        }
+
+        if ( SolrIndexerService.isGenerationStrategy( ) && !_mapFields.containsKey( SolrItem.FIELD_INDEXING_GENERATION ) )
+        {
+            solrInputDocument.addField( SolrItem.FIELD_INDEXING_GENERATION,
+                    Collections.singletonMap( MODIFIER_SET, SolrIndexerService.getIndexingGeneration( ) ) );
+        }
+
+        return solrInputDocument;
+    }
+
+    /**
+     * Add a modifier to a field. A field has only one modifier : the last one replaces the previous ones.
+     *
+     * @param strModifier
+     *            the modifier
+     * @param strField
+     *            the name of the field
+     * @param value
+     *            the value
+     * @return this update
+     */
+    private SolrPartialUpdate modify( String strModifier, String strField, Object value )
+    {
+        _mapFields.put( strField, Collections.singletonMap( strModifier, value ) );
+
+        return this;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *
+ * SolrPipelineStage : a stage of the indexing pipeline. The elements submitted are handled by a pool of threads, or by the calling thread when the stage
+ * has no thread. At most the number of threads plus the queue size elements are waiting or handled : a full stage blocks the previous one.
+ *
+ * @param <T>
+ *            the type of the elements handled by the stage
+ */
+class SolrPipelineStage<T>
+{
+    private final Handler<T> _handler;
+    private final ExecutorService _executor;
+    private final Semaphore _semaphore;
+    private final int _nPermits;
+    private final AtomicReference<Exception> _error;
+
+    /**
+     * Handles the elements of a stage
+     *
+     * @param <T>
+     *            the type of the elements
+     */
+    @FunctionalInterface
+    interface Handler<T>
+    {
+        /**
+         * Handle an element
+         *
+         * @param element
+         *            the element
+         * @throws IOException
+         *             i/o exception
+         */
+        void handle( T element ) throws IOException;
+    }
+
+    /**
+     * Creates a new stage
+     *
+     * @param strName
+     *            the name of the stage, used to name its threads
+     * @param nThreads
+     *            the number of threads, 0 to handle the elements in the calling thread
+     * @param nQueueSize
+     *            the number of elements waiting for a thread
+     * @param handler
+     *            the handler of the elements
+     * @param error
+     *            the first error of the pipeline
+     */
+    SolrPipelineStage( String strName, int nThreads, int nQueueSize, Handler<T> handler, AtomicReference<Exception> error )
+    {
+        _handler = handler;
+        _error = error;
+
+        if ( nThreads > 0 )
+        {
+            AtomicInteger nThreadNumber = new AtomicInteger( );
+            _executor = Executors.newFixedThreadPool( nThreads, runnable -> {
+                Thread thread = new Thread( runnable, "solr-indexer-" + strName + "-" + nThreadNumber.incrementAndGet( ) );
+                thread.setDaemon( true );
+
+                return thread;
+            } );
+            _nPermits = nThreads + Math.max( nQueueSize, 0 );
+            _semaphore = new Semaphore( _nPermits );
+        }
+        else
+        {
+            _executor = null;
+            _semaphore = null;
+            _nPermits = 0;
+        }
+    }
+
+    /**
+     * Submit an element, waiting while the stage is full
+     *
+     * @param element
+     *            the element
+     * @throws IOException
+     *             if the pipeline has failed, or i/o exception of the handler of a synchronous stage
+     */
+    void submit( T element ) throws IOException
+    {
+        checkError( );
+
+        if ( _executor == null )
+        {
+            _handler.handle( element );
+
+            return;
+        }
+
+        try
+        {
+            _semaphore.acquire( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new InterruptedIOException( "Interrupted while waiting for the indexing pipeline" );
+        }
+
+        _executor.execute( ( ) -> {
+            try
+            {
+                if ( _error.get( ) == null )
+                {
+                    _handler.handle( element );
+                }
+            }
+            catch( Exception e )
+            {
+                _error.compareAndSet( null, e );
+            }
+            finally
+            {
+                _semaphore.release( );
+            }
+        } );
+    }
+
+    /**
+     * Wait for the end of the elements submitted, the threads of the stage being kept
+     *
+     * @throws IOException
+     *             if the wait is interrupted
+     */
+    void drain( ) throws IOException
+    {
+        if ( _executor == null )
+        {
+            return;
+        }
+
+        try
+        {
+            // all the permits are free once no element is waiting or handled
+            _semaphore.acquire( _nPermits );
+            _semaphore.release( _nPermits );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new InterruptedIOException( "Interrupted while waiting for the indexing pipeline" );
+        }
+    }
+
+    /**
+     * Wait for the end of the elements submitted and stop the threads of the stage
+     *
+     * @throws IOException
+     *             if the wait is interrupted
+     */
+    void close( ) throws IOException
+    {
+        if ( _executor == null )
+        {
+            return;
+        }
+
+        _executor.shutdown( );
+
+        try
+        {
+            // the sender may wait for a slow Solr server
+            _executor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+        }
+        catch( InterruptedException e )
+        {
+            _executor.shutdownNow( );
+            Thread.currentThread( ).interrupt( );
+            throw new InterruptedIOException( "Interrupted while waiting for the indexing pipeline" );
+        }
+    }
+
+    /**
+     * Throw the first error of the pipeline
+     *
+     * @throws IOException
+     *             the first error of the pipeline
+     */
+    void checkError( ) throws IOException
+    {
+        Exception e = _error.get( );
+
+        if ( e instanceof IOException )
+        {
+            throw (IOException) e;
+        }
+
+        if ( e != null )
+        {
+            throw new IOException( e.getMessage( ), e );
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.params.CoreAdminParams.CoreAdminAction;
+
+import fr.paris.lutece.plugins.search.solr.business.SolrServerService;
+import fr.paris.lutece.plugins.search.solr.indexer.SolrItem;
+import fr.paris.lutece.plugins.search.solr.util.LuteceSolrException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * SolrBlueGreenService : builds a full reindex into a shadow collection (or core) and swaps it with the live one once complete, so that the searches never
+ * see a partial index. The live collection or core must be dedicated to the site.
+ * <ul>
+ * <li>alias mode : solr.server.address targets a Collections API alias switched between two collections</li>
+ * <li>core mode : solr.server.address targets a core swapped with a shadow core through the CoreAdmin API</li>
+ * </ul>
+ *
+ */
+public final class SolrBlueGreenService
+{
+    private static final String PROPERTY_MODE = "solr.indexer.bluegreen.mode";
+    private static final String PROPERTY_BASE_URL = "solr.indexer.bluegreen.baseUrl";
+    private static final String PROPERTY_ALIAS = "solr.indexer.bluegreen.alias";
+    private static final String PROPERTY_COLLECTIONS = "solr.indexer.bluegreen.collections";
+    private static final String PROPERTY_CORE = "solr.indexer.bluegreen.core";
+    private static final String PROPERTY_SHADOW_CORE = "solr.indexer.bluegreen.shadowCore";
+    private static final String PROPERTY_MIN_RATIO = "solr.indexer.bluegreen.minRatio";
+    private static final String MODE_ALIAS = "alias";
+    private static final String MODE_CORE = "core";
+    private static final String DEFAULT_MIN_RATIO = "0.9";
+    private static final String SEPARATOR = ",";
+
+    /**
+     * Private constructor
+     */
+    private SolrBlueGreenService( )
+    {
+    }
+
+    /**
+     * Returns the name of the collection or core receiving the next full reindex
+     * 
+     * @return the name of the shadow collection or core
+     * @throws LuteceSolrException
+     *             if the configuration is incomplete or the aliases cannot be read
+     */
+    public static String getShadowName( ) throws LuteceSolrException
+    {
+        if ( isCoreMode( ) )
+        {
+            return getRequiredProperty( PROPERTY_SHADOW_CORE );
+        }
+
+        List<String> listCollections = Arrays.asList( StringUtils.split( getRequiredProperty( PROPERTY_COLLECTIONS ), SEPARATOR ) );
+
+        if ( listCollections.size( ) != 2 )
+        {
+            throw new LuteceSolrException( PROPERTY_COLLECTIONS + " must contain two collections", null );
+        }
+
+        String strLive;
+
+        try ( SolrClient adminClient = createAdminClient( ) )
+        {
+            Map<String, String> mapAliases = CollectionAdminRequest.listAliases( ).process( adminClient ).getAliases( );
+            strLive = mapAliases.get( getRequiredProperty( PROPERTY_ALIAS ) );
+        }
+        catch( SolrServerException | IOException e )
+        {
+            throw new LuteceSolrException( "Unable to read the Solr aliases", e );
+        }
+
+        String strFirst = listCollections.get( 0 ).trim( );
+        String strSecond = listCollections.get( 1 ).trim( );
+
+        return strFirst.equals( strLive ) ? strSecond : strFirst;
+    }
+
+    /**
+     * Creates a client for the shadow collection or core. The caller must close the client.
+     * 
+     * @param strShadowName
+     *            the name of the shadow collection or core
+     * @return the client
+     * @throws LuteceSolrException
+     *             if the configuration is incomplete
+     */
+    public static SolrClient createShadowClient( String strShadowName ) throws LuteceSolrException
+    {
+        return SolrServerService.getInstance( ).createSolrServer( getBaseUrl( ) + strShadowName );
+    }
+
+    /**
+     * Check that the shadow index contains enough documents of the site compared to the live one
+     * 
+     * @param shadowClient
+     *            the client of the shadow index
+     * @param liveClient
+     *            the client of the live index
+     * @param strSite
+     *            the name of the site
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @return true if the shadow index can replace the live one
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    public static boolean verify( SolrClient shadowClient, SolrClient liveClient, String strSite, StringBuilder sbLogs )
+            throws SolrServerException, IOException
+    {
+        long lShadowCount = countDocuments( shadowClient, strSite );
+        long lLiveCount = countDocuments( liveClient, strSite );
+        double dMinRatio = Double.parseDouble( AppPropertiesService.getProperty( PROPERTY_MIN_RATIO, DEFAULT_MIN_RATIO ) );
+
+        sbLogs.append( "Documents in the new index : " ).append( lShadowCount ).append( ", in the live index : " ).append( lLiveCount ).append( "\r\n" );
+
+        return ( lShadowCount > 0 || lLiveCount == 0 ) && ( lShadowCount >= lLiveCount * dMinRatio );
+    }
+
+    /**
+     * Make the shadow collection or core the live one
+     * 
+     * @param strShadowName
+     *            the name of the shadow collection or core
+     * @throws LuteceSolrException
+     *             if the swap fails
+     */
+    public static void swap( String strShadowName ) throws LuteceSolrException
+    {
+        try ( SolrClient adminClient = createAdminClient( ) )
+        {
+            if ( isCoreMode( ) )
+            {
+                CoreAdminRequest request = new CoreAdminRequest( );
+                request.setAction( CoreAdminAction.SWAP );
+                request.setCoreName( getRequiredProperty( PROPERTY_CORE ) );
+                request.setOtherCoreName( strShadowName );
+                request.process( adminClient );
+            }
+            else
+            {
+                CollectionAdminRequest.createAlias( getRequiredProperty( PROPERTY_ALIAS ), strShadowName ).process( adminClient );
+            }
+        }
+        catch( SolrServerException | IOException e )
+        {
+            throw new LuteceSolrException( "Unable to swap the Solr index with " + strShadowName, e );
+        }
+    }
+
+    /**
+     * Count the documents of a site
+     * 
+     * @param client
+     *            the client of the index
+     * @param strSite
+     *            the name of the site
+     * @return the number of documents
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static long countDocuments( SolrClient client, String strSite ) throws SolrServerException, IOException
+    {
+        SolrQuery query = new SolrQuery( SolrItem.FIELD_SITE + ":" + ClientUtils.escapeQueryChars( strSite ) );
+        query.setRows( 0 );
+
+        return client.query( query ).getResults( ).getNumFound( );
+    }
+
+    /**
+     * Creates a client for the admin APIs
+     * 
+     * @return the client
+     * @throws LuteceSolrException
+     *             if the configuration is incomplete
+     */
+    private static SolrClient createAdminClient( ) throws LuteceSolrException
+    {
+        return SolrServerService.getInstance( ).createSolrServer( getBaseUrl( ) );
+    }
+
+    /**
+     * Returns the url of the Solr server, without collection or core
+     * 
+     * @return the url, ending with a slash
+     * @throws LuteceSolrException
+     *             if the property is missing
+     */
+    private static String getBaseUrl( ) throws LuteceSolrException
+    {
+        String strBaseUrl = getRequiredProperty( PROPERTY_BASE_URL );
+
+        return strBaseUrl.endsWith( "/" ) ? strBaseUrl : ( strBaseUrl + "/" );
+    }
+
+    /**
+     * Tells whether cores are swapped instead of aliases
+     * 
+     * @return true for the core mode
+     */
+    private static boolean isCoreMode( )
+    {
+        return MODE_CORE.equalsIgnoreCase( AppPropertiesService.getProperty( PROPERTY_MODE, MODE_ALIAS ).trim( ) );
+    }
+
+    /**
+     * Returns a property that must be set for the blue/green strategy
+     * 
+     * @param strProperty
+     *            the property key
+     * @return the value of the property
+     * @throws LuteceSolrException
+     *             if the property is missing
+     */
+    private static String getRequiredProperty( String strProperty ) throws LuteceSolrException
+    {
+        String strValue = AppPropertiesService.getProperty( strProperty );
+
+        if ( StringUtils.isBlank( strValue ) )
+        {
+            throw new LuteceSolrException( "Missing property " + strProperty + " for the blue/green indexing strategy", null );
+        }
+
+        return strValue.trim( );
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+
+import fr.paris.lutece.plugins.search.solr.business.fingerprint.SolrFingerprintHome;
+import fr.paris.lutece.plugins.search.solr.indexer.SolrItem;
+import fr.paris.lutece.plugins.search.solr.util.SolrUtil;
+import fr.paris.lutece.portal.service.search.SearchItem;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * SolrFingerprintService : computes a SHA-256 fingerprint of the documents sent to the Solr server and keeps it by uid, so that the documents whose content
+ * has not changed since they were sent can be skipped. The fingerprints of the documents sent are kept pending until the documents are committed : they
+ * are stored after a successful commit, and the stored ones are removed when the commit fails, so that a document which has not been committed is sent
+ * again by the next run.
+ *
+ */
+public final class SolrFingerprintService
+{
+    private static final String PROPERTY_FINGERPRINT_ENABLE = "solr.indexer.fingerprint.enable";
+    private static final String PROPERTY_PENDING_MAX_SIZE = "solr.indexer.fingerprint.pending.maxSize";
+    private static final int DEFAULT_PENDING_MAX_SIZE = 100000;
+    private static final byte SEPARATOR_FIELD = 0;
+    private static final byte SEPARATOR_VALUE = 1;
+    private static final Map<String, String> PENDING_FINGERPRINTS = new ConcurrentHashMap<>( );
+
+    /**
+     * Private constructor
+     */
+    private SolrFingerprintService( )
+    {
+    }
+
+    /**
+     * Tells whether the fingerprints are enabled
+     * 
+     * @return true if the fingerprints are enabled
+     */
+    public static boolean isEnabled( )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_FINGERPRINT_ENABLE, true );
+    }
+
+    /**
+     * Compute the fingerprints of documents
+     * 
+     * @param listDocuments
+     *            the documents
+     * @return the fingerprints by uid, empty if the fingerprints are disabled. The documents without uid have no fingerprint.
+     */
+    public static Map<String, String> computeFingerprints( Collection<SolrInputDocument> listDocuments )
+    {
+        if ( !isEnabled( ) )
+        {
+            return Collections.emptyMap( );
+        }
+
+        Map<String, String> mapFingerprints = new HashMap<>( );
+
+        for ( SolrInputDocument solrInputDocument : listDocuments )
+        {
+            Object uid = solrInputDocument.getFieldValue( SearchItem.FIELD_UID );
+
+            if ( uid != null )
+            {
+                mapFingerprints.put( uid.toString( ), computeFingerprint( solrInputDocument ) );
+            }
+        }
+
+        return mapFingerprints;
+    }
+
+    /**
+     * Compute the fingerprint of a document. The fields are hashed in the alphabetical order of their names, and the indexing generation is ignored.
+     * 
+     * @param solrInputDocument
+     *            the document
+     * @return the fingerprint, as an hexadecimal string
+     */
+    public static String computeFingerprint( SolrInputDocument solrInputDocument )
+    {
+        MessageDigest digest = SolrUtil.newSha256Digest( );
+        updateDigest( digest, solrInputDocument );
+
+        return SolrUtil.toHexString( digest.digest( ) );
+    }
+
+    /**
+     * Find the documents whose fingerprint has not changed since they were sent
+     * 
+     * @param mapFingerprints
+     *            the fingerprints of the documents, by uid
+     * @return the uids of the unchanged documents
+     */
+    public static Set<String> findUnchanged( Map<String, String> mapFingerprints )
+    {
+        Set<String> setUnchanged = new HashSet<>( );
+
+        if ( mapFingerprints.isEmpty( ) )
+        {
+            return setUnchanged;
+        }
+
+        try
+        {
+            for ( Map.Entry<String, String> stored : SolrFingerprintHome.findByUids( mapFingerprints.keySet( ), SolrPlugin._plugin ).entrySet( ) )
+            {
+                if ( stored.getValue( ).equals( mapFingerprints.get( stored.getKey( ) ) ) )
+                {
+                    setUnchanged.add( stored.getKey( ) );
+                }
+            }
+        }
+        catch( Exception e )
+        {
+            // the documents are sent
+            AppLogService.error( "Unable to read the fingerprints of the documents", e );
+        }
+
+        return setUnchanged;
+    }
+
+    /**
+     * Store the fingerprints of documents which have been committed
+     * 
+     * @param mapFingerprints
+     *            the fingerprints of the documents, by uid
+     */
+    public static void store( Map<String, String> mapFingerprints )
+    {
+        if ( mapFingerprints.isEmpty( ) )
+        {
+            return;
+        }
+
+        try
+        {
+            SolrFingerprintHome.store( mapFingerprints, SolrPlugin._plugin );
+        }
+        catch( Exception e )
+        {
+            // the documents have been committed : they will only be sent again by the next run
+            AppLogService.error( "Unable to store the fingerprints of the documents", e );
+        }
+    }
+
+    /**
+     * Keep the fingerprints of documents which have been sent, until they are committed. Beyond solr.indexer.fingerprint.pending.maxSize pending fingerprints,
+     * the stored fingerprints of the documents are removed instead : the documents will be sent again by the next run.
+     * 
+     * @param mapFingerprints
+     *            the fingerprints of the documents, by uid
+     */
+    public static void addPending( Map<String, String> mapFingerprints )
+    {
+        if ( mapFingerprints.isEmpty( ) )
+        {
+            return;
+        }
+
+        if ( PENDING_FINGERPRINTS.size( ) < AppPropertiesService.getPropertyInt( PROPERTY_PENDING_MAX_SIZE, DEFAULT_PENDING_MAX_SIZE ) )
+        {
+            PENDING_FINGERPRINTS.putAll( mapFingerprints );
+        }
+        else
+        {
+            invalidate( mapFingerprints );
+        }
+    }
+
+    /**
+     * Take the pending fingerprints, before a commit
+     * 
+     * @return the fingerprints of the documents sent since the last commit, by uid
+     */
+    public static Map<String, String> takePending( )
+    {
+        Map<String, String> mapFingerprints = new HashMap<>( PENDING_FINGERPRINTS );
+
+        for ( Map.Entry<String, String> fingerprint : mapFingerprints.entrySet( ) )
+        {
+            // a document sent again meanwhile keeps its new fingerprint pending
+            PENDING_FINGERPRINTS.remove( fingerprint.getKey( ), fingerprint.getValue( ) );
+        }
+
+        return mapFingerprints;
+    }
+
+    /**
+     * Remove the stored fingerprints of documents which may not have been committed
+     * 
+     * @param mapFingerprints
+     *            the fingerprints of the documents, by uid
+     */
+    public static void invalidate( Map<String, String> mapFingerprints )
+    {
+        if ( mapFingerprints.isEmpty( ) )
+        {
+            return;
+        }
+
+        try
+        {
+            SolrFingerprintHome.remove( mapFingerprints.keySet( ), SolrPlugin._plugin );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Unable to remove the fingerprints of the documents", e );
+        }
+    }
+
+    /**
+     * Remove the fingerprints of documents which have been deleted or modified by another way
+     * 
+     * @param listUids
+     *            the uids of the documents
+     */
+    public static void remove( Collection<String> listUids )
+    {
+        if ( isEnabled( ) && !listUids.isEmpty( ) )
+        {
+            PENDING_FINGERPRINTS.keySet( ).removeAll( listUids );
+            SolrFingerprintHome.remove( listUids, SolrPlugin._plugin );
+        }
+    }
+
+    /**
+     * Remove all the fingerprints, when the documents of the index are all deleted or sent again
+     */
+    public static void removeAll( )
+    {
+        if ( isEnabled( ) )
+        {
+            PENDING_FINGERPRINTS.clear( );
+            SolrFingerprintHome.removeAll( SolrPlugin._plugin );
+        }
+    }
+
+    /**
+     * Add the fields of a document to a digest
+     * 
+     * @param digest
+     *            the digest
+     * @param solrInputDocument
+     *            the document
+     */
+    private static void updateDigest( MessageDigest digest, SolrInputDocument solrInputDocument )
+    {
+        Map<String, SolrInputField> mapFields = new TreeMap<>( );
+
+        for ( SolrInputField field : solrInputDocument )
+        {
+            if ( !SolrItem.FIELD_INDEXING_GENERATION.equals( field.getName( ) ) )
+            {
+                mapFields.put( field.getName( ), field );
+            }
+        }
+
+        for ( SolrInputField field : mapFields.values( ) )
+        {
+            digest.update( field.getName( ).getBytes( StandardCharsets.UTF_8 ) );
+            digest.update( SEPARATOR_FIELD );
+            updateDigest( digest, field.getValue( ) );
+            digest.update( SEPARATOR_FIELD );
+        }
+
+        if ( solrInputDocument.hasChildDocuments( ) )
+        {
+            for ( SolrInputDocument child : solrInputDocument.getChildDocuments( ) )
+            {
+                updateDigest( digest, child );
+            }
+        }
+    }
+
+    /**
+     * Add a field value to a digest
+     * 
+     * @param digest
+     *            the digest
+     * @param value
+     *            the value
+     */
+    private static void updateDigest( MessageDigest digest, Object value )
+    {
+        if ( value instanceof SolrInputDocument )
+        {
+            updateDigest( digest, (SolrInputDocument) value );
+        }
+        else
+            if ( value instanceof Collection )
+            {
+                for ( Object item : (Collection<?>) value )
+                {
+                    updateDigest( digest, item );
+                }
+            }
+            else
+                if ( value instanceof Date )
+                {
+                    // independent of the time zone of the server
+                    digest.update( Long.toString( ( (Date) value ).getTime( ) ).getBytes( StandardCharsets.UTF_8 ) );
+                }
+                else
+                    if ( value != null )
+                    {
+                        digest.update( value.toString( ).getBytes( StandardCharsets.UTF_8 ) );
+                    }
+
+        digest.update( SEPARATOR_VALUE );
+    }
+}
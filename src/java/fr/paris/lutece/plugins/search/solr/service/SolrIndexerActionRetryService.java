@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.service;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+import fr.paris.lutece.plugins.search.solr.business.indexeraction.SolrIndexerAction;
+import fr.paris.lutece.plugins.search.solr.business.indexeraction.SolrIndexerActionFailed;
+import fr.paris.lutece.plugins.search.solr.business.indexeraction.SolrIndexerActionFailedHome;
+import fr.paris.lutece.plugins.search.solr.business.indexeraction.SolrIndexerActionHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * SolrIndexerActionRetryService : retries the failed indexer actions with an exponential backoff, and moves them to the failed actions once they have failed
+ * too many times, so that they no longer delay the other actions at each incremental indexing.
+ *
+ */
+public final class SolrIndexerActionRetryService
+{
+    private static final String PROPERTY_MAX_ATTEMPTS = "solr.indexer.action.maxAttempts";
+    private static final String PROPERTY_RETRY_DELAY = "solr.indexer.action.retryDelay";
+    private static final String PROPERTY_RETRY_MAX_DELAY = "solr.indexer.action.retryMaxDelay";
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long DEFAULT_RETRY_DELAY = 60;
+    private static final long DEFAULT_RETRY_MAX_DELAY = 86400;
+    private static final int MAX_ERROR_LENGTH = 4000;
+    private static final int REPLAY_BATCH_SIZE = 500;
+
+    /**
+     * Private constructor
+     */
+    private SolrIndexerActionRetryService( )
+    {
+    }
+
+    /**
+     * Returns the number of attempts after which an action is given up
+     * 
+     * @return the maximum number of attempts
+     */
+    public static int getMaxAttempts( )
+    {
+        return Math.max( AppPropertiesService.getPropertyInt( PROPERTY_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS ), 1 );
+    }
+
+    /**
+     * Returns the delay before the next attempt of an action : the base delay, doubled at each failed attempt up to the maximum delay
+     * 
+     * @param nAttempts
+     *            the number of failed attempts
+     * @param lBaseDelay
+     *            the delay after the first failed attempt, in seconds
+     * @param lMaxDelay
+     *            the maximum delay, in seconds
+     * @return the delay in milliseconds
+     */
+    public static long getRetryDelay( int nAttempts, long lBaseDelay, long lMaxDelay )
+    {
+        long lDelay = Math.max( lBaseDelay, 0 );
+
+        for ( int i = 1; ( i < nAttempts ) && ( lDelay < lMaxDelay ); i++ )
+        {
+            lDelay *= 2;
+        }
+
+        return Math.min( lDelay, lMaxDelay ) * 1000L;
+    }
+
+    /**
+     * Record a failed attempt of an action. The action is postponed, or moved to the failed actions if it has reached the maximum number of attempts.
+     * 
+     * @param action
+     *            the action
+     * @param strError
+     *            the error of the attempt
+     * @return true if the action has been given up
+     */
+    public static boolean fail( SolrIndexerAction action, String strError )
+    {
+        long lNow = System.currentTimeMillis( );
+        String strLastError = StringUtils.abbreviate( strError, MAX_ERROR_LENGTH );
+        action.setAttempts( action.getAttempts( ) + 1 );
+        action.setLastError( strLastError );
+
+        try
+        {
+            if ( action.getAttempts( ) >= getMaxAttempts( ) )
+            {
+                SolrIndexerActionFailed actionFailed = new SolrIndexerActionFailed( );
+                actionFailed.setIdDocument( action.getIdDocument( ) );
+                actionFailed.setIdTask( action.getIdTask( ) );
+                actionFailed.setTypeResource( action.getTypeResource( ) );
+                actionFailed.setIdPortlet( action.getIdPortlet( ) );
+                actionFailed.setAttempts( action.getAttempts( ) );
+                actionFailed.setLastError( strLastError );
+                actionFailed.setDateFailure( new Timestamp( lNow ) );
+                SolrIndexerActionFailedHome.create( actionFailed, SolrPlugin._plugin );
+                SolrIndexerActionHome.remove( action.getIdAction( ), SolrPlugin._plugin );
+
+                return true;
+            }
+
+            long lDelay = getRetryDelay( action.getAttempts( ), AppPropertiesService.getPropertyLong( PROPERTY_RETRY_DELAY, DEFAULT_RETRY_DELAY ),
+                    AppPropertiesService.getPropertyLong( PROPERTY_RETRY_MAX_DELAY, DEFAULT_RETRY_MAX_DELAY ) );
+            action.setDateNextAttempt( new Timestamp( lNow + lDelay ) );
+            SolrIndexerActionHome.update( action, SolrPlugin._plugin );
+        }
+        catch( Exception e )
+        {
+            // the action is left unchanged and will be processed again by the next run
+            AppLogService.error( "Unable to record the failure of the indexer action " + action.getIdAction( ), e );
+        }
+
+        return false;
+    }
+
+    /**
+     * Put a failed action back in the queue of the incremental indexing
+     * 
+     * @param nIdActionFailed
+     *            the identifier of the failed action
+     */
+    public static void replay( int nIdActionFailed )
+    {
+        SolrIndexerActionFailed actionFailed = SolrIndexerActionFailedHome.findByPrimaryKey( nIdActionFailed, SolrPlugin._plugin );
+
+        if ( actionFailed != null )
+        {
+            replay( actionFailed );
+        }
+    }
+
+    /**
+     * Put all the failed actions back in the queue of the incremental indexing
+     */
+    public static void replayAll( )
+    {
+        List<SolrIndexerActionFailed> listActionsFailed = SolrIndexerActionFailedHome.getList( REPLAY_BATCH_SIZE, SolrPlugin._plugin );
+
+        while ( !listActionsFailed.isEmpty( ) )
+        {
+            // the oldest actions are queued first
+            Collections.reverse( listActionsFailed );
+
+            for ( SolrIndexerActionFailed actionFailed : listActionsFailed )
+            {
+                replay( actionFailed );
+            }
+
+            listActionsFailed = SolrIndexerActionFailedHome.getList( REPLAY_BATCH_SIZE, SolrPlugin._plugin );
+        }
+    }
+
+    /**
+     * Remove a failed action
+     * 
+     * @param nIdActionFailed
+     *            the identifier of the failed action
+     */
+    public static void purge( int nIdActionFailed )
+    {
+        SolrIndexerActionFailedHome.remove( nIdActionFailed, SolrPlugin._plugin );
+    }
+
+    /**
+     * Remove all the failed actions
+     */
+    public static void purgeAll( )
+    {
+        SolrIndexerActionFailedHome.removeAll( SolrPlugin._plugin );
+    }
+
+    /**
+     * Put a failed action back in the queue, as a new action
+     * 
+     * @param actionFailed
+     *            the failed action
+     */
+    private static void replay( SolrIndexerActionFailed actionFailed )
+    {
+        SolrIndexerAction action = new SolrIndexerAction( );
+        action.setIdDocument( actionFailed.getIdDocument( ) );
+        action.setIdTask( actionFailed.getIdTask( ) );
+        action.setTypeResource( actionFailed.getTypeResource( ) );
+        action.setIdPortlet( actionFailed.getIdPortlet( ) );
+        SolrIndexerActionHome.create( action, SolrPlugin._plugin );
+        SolrIndexerActionFailedHome.remove( actionFailed.getIdActionFailed( ), SolrPlugin._plugin );
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.service;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.SolrServerException;
+
+import fr.paris.lutece.plugins.search.solr.business.checkpoint.SolrIndexerCheckpoint;
+import fr.paris.lutece.plugins.search.solr.business.checkpoint.SolrIndexerCheckpointHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * SolrIndexerCheckpointService : keeps the progress of each indexer during a full indexing, so that a run interrupted by a restart of the webapp can be
+ * resumed by the next one instead of starting over.
+ *
+ */
+public final class SolrIndexerCheckpointService
+{
+    private static final String PROPERTY_CHECKPOINT_ENABLE = "solr.indexer.checkpoint.enable";
+    private static final String PROPERTY_CHECKPOINT_INTERVAL = "solr.indexer.checkpoint.interval";
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+
+    /**
+     * Private constructor
+     */
+    private SolrIndexerCheckpointService( )
+    {
+    }
+
+    /**
+     * Tells whether the checkpoints are enabled
+     * 
+     * @return true if the checkpoints are enabled
+     */
+    public static boolean isEnabled( )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_CHECKPOINT_ENABLE, true );
+    }
+
+    /**
+     * Returns the number of items written by an indexer between two checkpoints
+     * 
+     * @return the number of items
+     */
+    public static int getInterval( )
+    {
+        return Math.max( AppPropertiesService.getPropertyInt( PROPERTY_CHECKPOINT_INTERVAL, DEFAULT_CHECKPOINT_INTERVAL ), 1 );
+    }
+
+    /**
+     * Returns the checkpoints left by an interrupted full indexing
+     * 
+     * @return the checkpoints by indexer name, empty if there is no interrupted run or if the checkpoints are disabled
+     */
+    public static Map<String, SolrIndexerCheckpoint> getCheckpoints( )
+    {
+        if ( !isEnabled( ) )
+        {
+            return Collections.emptyMap( );
+        }
+
+        Map<String, SolrIndexerCheckpoint> mapCheckpoints = new LinkedHashMap<>( );
+
+        for ( SolrIndexerCheckpoint checkpoint : SolrIndexerCheckpointHome.getCheckpointsList( SolrPlugin._plugin ) )
+        {
+            mapCheckpoints.put( checkpoint.getIndexerName( ), checkpoint );
+        }
+
+        return mapCheckpoints;
+    }
+
+    /**
+     * Record the start of a full indexing. The documents of the site are removed first : the checkpoints are recorded only once the removal has succeeded, so
+     * that a run interrupted before the end of the removal is never resumed.
+     * 
+     * @param lGeneration
+     *            the generation of the full indexing
+     * @param listIndexerNames
+     *            the names of the indexers which will run
+     * @param siteCleaner
+     *            the removal of the documents of the site, or null if the documents are kept
+     * @return the checkpoints of the indexers by indexer name, empty if the checkpoints are disabled
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    public static Map<String, SolrIndexerCheckpoint> start( long lGeneration, Collection<String> listIndexerNames, SiteCleaner siteCleaner )
+            throws SolrServerException, IOException
+    {
+        clear( );
+
+        if ( siteCleaner != null )
+        {
+            siteCleaner.clean( );
+        }
+
+        if ( !isEnabled( ) )
+        {
+            return Collections.emptyMap( );
+        }
+
+        Map<String, SolrIndexerCheckpoint> mapCheckpoints = new LinkedHashMap<>( );
+
+        for ( String strIndexerName : listIndexerNames )
+        {
+            SolrIndexerCheckpoint checkpoint = new SolrIndexerCheckpoint( );
+            checkpoint.setIndexerName( strIndexerName );
+            checkpoint.setGeneration( lGeneration );
+            SolrIndexerCheckpointHome.create( checkpoint, SolrPlugin._plugin );
+            mapCheckpoints.put( strIndexerName, checkpoint );
+        }
+
+        return mapCheckpoints;
+    }
+
+    /**
+     * Store the progress of an indexer
+     * 
+     * @param checkpoint
+     *            the checkpoint of the indexer
+     */
+    public static void save( SolrIndexerCheckpoint checkpoint )
+    {
+        try
+        {
+            SolrIndexerCheckpointHome.update( checkpoint, SolrPlugin._plugin );
+        }
+        catch( Exception e )
+        {
+            // the indexing goes on : a resumed run will only index again more resources
+            AppLogService.error( "Unable to store the checkpoint of the indexer " + checkpoint.getIndexerName( ), e );
+        }
+    }
+
+    /**
+     * Remove all the checkpoints, at the end of a full indexing
+     */
+    public static void clear( )
+    {
+        if ( isEnabled( ) )
+        {
+            SolrIndexerCheckpointHome.removeAll( SolrPlugin._plugin );
+        }
+    }
+
+    /**
+     * Removal of the documents of the site, before a full indexing
+     */
+    @FunctionalInterface
+    public interface SiteCleaner
+    {
+        /**
+         * Remove the documents of the site
+         *
+         * @throws SolrServerException
+         *             solr exception
+         * @throws IOException
+         *             i/o exception
+         */
+        void clean( ) throws SolrServerException, IOException;
+    }
+}
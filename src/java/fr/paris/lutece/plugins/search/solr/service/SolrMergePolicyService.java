@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.service;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.LukeRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.client.solrj.response.LukeResponse;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.NamedList;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * SolrMergePolicyService : decides, after an indexing run, whether the index segments must be merged. The decision is based on the segment and deleted
+ * documents statistics returned by the Luke request handler, instead of optimizing the whole index after every run.
+ *
+ */
+public final class SolrMergePolicyService
+{
+    /**
+     * Never merge explicitly, the Solr merge policy is enough
+     */
+    public static final String POLICY_NEVER = "never";
+
+    /**
+     * Expunge the deleted documents when the ratio of deleted documents exceeds a threshold
+     */
+    public static final String POLICY_EXPUNGE = "expunge";
+
+    /**
+     * Optimize during a configured off-peak window when the index has too many segments or deleted documents
+     */
+    public static final String POLICY_WINDOW = "window";
+
+    /**
+     * Optimize after every run
+     */
+    public static final String POLICY_OPTIMIZE = "optimize";
+
+    private static final String PROPERTY_MERGE_POLICY = "solr.indexer.merge.policy";
+    private static final String PROPERTY_DELETED_DOCS_RATIO = "solr.indexer.merge.deletedDocsRatio";
+    private static final String PROPERTY_MAX_SEGMENTS = "solr.indexer.merge.maxSegments";
+    private static final String PROPERTY_WINDOW_START = "solr.indexer.merge.window.start";
+    private static final String PROPERTY_WINDOW_END = "solr.indexer.merge.window.end";
+    private static final String DEFAULT_DELETED_DOCS_RATIO = "0.2";
+    private static final int DEFAULT_MAX_SEGMENTS = 1;
+    private static final String DEFAULT_WINDOW_START = "02:00";
+    private static final String DEFAULT_WINDOW_END = "05:00";
+    private static final String INDEX_INFO_NUM_DOCS = "numDocs";
+    private static final String INDEX_INFO_MAX_DOC = "maxDoc";
+    private static final String INDEX_INFO_DELETED_DOCS = "deletedDocs";
+    private static final String INDEX_INFO_SEGMENT_COUNT = "segmentCount";
+
+    /**
+     * Private constructor
+     */
+    private SolrMergePolicyService( )
+    {
+    }
+
+    /**
+     * Apply the configured merge policy to an index. The documents are already committed : a failure is logged and does not fail the indexing run.
+     * 
+     * @param client
+     *            the client of the index
+     * @param sbLogs
+     *            StringBuilder to write to
+     */
+    public static void applyMergePolicy( SolrClient client, StringBuilder sbLogs )
+    {
+        try
+        {
+            merge( client, sbLogs );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Unable to apply the Solr merge policy", e );
+            sbLogs.append( "<strong>WARNING : unable to apply the merge policy : " ).append( e.getMessage( ) ).append( "</strong>\r\n" );
+        }
+    }
+
+    /**
+     * Merge the segments of an index according to the configured merge policy
+     * 
+     * @param client
+     *            the client of the index
+     * @param sbLogs
+     *            StringBuilder to write to
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static void merge( SolrClient client, StringBuilder sbLogs ) throws SolrServerException, IOException
+    {
+        String strPolicy = AppPropertiesService.getProperty( PROPERTY_MERGE_POLICY, POLICY_OPTIMIZE ).trim( );
+
+        if ( POLICY_NEVER.equalsIgnoreCase( strPolicy ) )
+        {
+            return;
+        }
+
+        if ( POLICY_OPTIMIZE.equalsIgnoreCase( strPolicy ) )
+        {
+            client.optimize( );
+            sbLogs.append( "Index optimized\r\n" );
+
+            return;
+        }
+
+        IndexStats stats = getIndexStats( client );
+        double dDeletedDocsRatio = Double.parseDouble( AppPropertiesService.getProperty( PROPERTY_DELETED_DOCS_RATIO, DEFAULT_DELETED_DOCS_RATIO ) );
+
+        if ( POLICY_EXPUNGE.equalsIgnoreCase( strPolicy ) )
+        {
+            if ( stats.getDeletedDocsRatio( ) > dDeletedDocsRatio )
+            {
+                expungeDeletes( client );
+                sbLogs.append( "Deleted documents expunged (" ).append( stats ).append( ")\r\n" );
+            }
+        }
+        else
+            if ( POLICY_WINDOW.equalsIgnoreCase( strPolicy ) )
+            {
+                int nMaxSegments = AppPropertiesService.getPropertyInt( PROPERTY_MAX_SEGMENTS, DEFAULT_MAX_SEGMENTS );
+
+                if ( isInWindow( LocalTime.now( ) )
+                        && ( ( stats.getSegmentCount( ) > nMaxSegments ) || ( stats.getDeletedDocsRatio( ) > dDeletedDocsRatio ) ) )
+                {
+                    client.optimize( true, true, nMaxSegments );
+                    sbLogs.append( "Index optimized to " ).append( nMaxSegments ).append( " segment(s) (" ).append( stats ).append( ")\r\n" );
+                }
+            }
+            else
+            {
+                AppLogService.error( "Unknown Solr merge policy : " + strPolicy );
+            }
+    }
+
+    /**
+     * Commit and merge away the deleted documents
+     * 
+     * @param client
+     *            the client of the index
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static void expungeDeletes( SolrClient client ) throws SolrServerException, IOException
+    {
+        UpdateRequest request = new UpdateRequest( );
+        request.setAction( AbstractUpdateRequest.ACTION.COMMIT, true, true );
+        request.setParam( UpdateParams.EXPUNGE_DELETES, Boolean.TRUE.toString( ) );
+        request.process( client );
+    }
+
+    /**
+     * Tells whether a time is in the off-peak window. The window may span midnight.
+     * 
+     * @param time
+     *            the time
+     * @return true if the time is in the window
+     */
+    private static boolean isInWindow( LocalTime time )
+    {
+        try
+        {
+            LocalTime start = LocalTime.parse( AppPropertiesService.getProperty( PROPERTY_WINDOW_START, DEFAULT_WINDOW_START ).trim( ) );
+            LocalTime end = LocalTime.parse( AppPropertiesService.getProperty( PROPERTY_WINDOW_END, DEFAULT_WINDOW_END ).trim( ) );
+
+            if ( !start.isAfter( end ) )
+            {
+                return !time.isBefore( start ) && time.isBefore( end );
+            }
+
+            return !time.isBefore( start ) || time.isBefore( end );
+        }
+        catch( DateTimeParseException e )
+        {
+            AppLogService.error( "Invalid Solr merge window : " + e.getMessage( ), e );
+
+            return false;
+        }
+    }
+
+    /**
+     * Read the segment and deleted documents statistics of an index
+     * 
+     * @param client
+     *            the client of the index
+     * @return the statistics
+     * @throws SolrServerException
+     *             solr exception
+     * @throws IOException
+     *             i/o exception
+     */
+    private static IndexStats getIndexStats( SolrClient client ) throws SolrServerException, IOException
+    {
+        LukeRequest request = new LukeRequest( );
+        request.setNumTerms( 0 );
+        request.setShowSchema( false );
+
+        LukeResponse response = request.process( client );
+        NamedList<Object> indexInfo = response.getIndexInfo( );
+
+        return new IndexStats( getLong( indexInfo, INDEX_INFO_NUM_DOCS ), getLong( indexInfo, INDEX_INFO_MAX_DOC ),
+                getLong( indexInfo, INDEX_INFO_DELETED_DOCS ), getLong( indexInfo, INDEX_INFO_SEGMENT_COUNT ) );
+    }
+
+    /**
+     * Read a numeric value of the index info
+     * 
+     * @param indexInfo
+     *            the index info
+     * @param strName
+     *            the name of the value
+     * @return the value, 0 if not found
+     */
+    private static long getLong( NamedList<Object> indexInfo, String strName )
+    {
+        Object value = ( indexInfo != null ) ? indexInfo.get( strName ) : null;
+
+        return ( value instanceof Number ) ? ( (Number) value ).longValue( ) : 0L;
+    }
+
+    /**
+     * Statistics of an index
+     */
+    private static final class IndexStats
+    {
+        private final long _lNumDocs;
+        private final long _lMaxDoc;
+        private final long _lDeletedDocs;
+        private final long _lSegmentCount;
+
+        IndexStats( long lNumDocs, long lMaxDoc, long lDeletedDocs, long lSegmentCount )
+        {
+            _lNumDocs = lNumDocs;
+            _lMaxDoc = lMaxDoc;
+            _lDeletedDocs = ( lDeletedDocs > 0 ) ? lDeletedDocs : Math.max( lMaxDoc - lNumDocs, 0 );
+            _lSegmentCount = lSegmentCount;
+        }
+
+        double getDeletedDocsRatio( )
+        {
+            return ( _lMaxDoc > 0 ) ? ( (double) _lDeletedDocs / _lMaxDoc ) : 0d;
+        }
+
+        long getSegmentCount( )
+        {
+            return _lSegmentCount;
+        }
+
+        @Override
+        public String toString( )
+        {
+            return "documents : " + _lNumDocs + ", deleted : " + _lDeletedDocs + ", segments : " + _lSegmentCount;
+        }
+    }
+}
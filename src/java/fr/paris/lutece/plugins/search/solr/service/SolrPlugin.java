@@ -34,7 +34,10 @@
 package fr.paris.lutece.plugins.search.solr.service;
 
 import fr.paris.lutece.plugins.search.solr.indexer.SolrEventRessourceListener;
+import fr.paris.lutece.plugins.search.solr.indexer.SolrPageEventListener;
 import fr.paris.lutece.portal.service.event.ResourceEventManager;
+import fr.paris.lutece.portal.service.init.ShutdownServiceManager;
+import fr.paris.lutece.portal.service.page.PageService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginDefaultImplementation;
 import fr.paris.lutece.portal.service.plugin.PluginService;
@@ -51,5 +54,11 @@ public class SolrPlugin extends PluginDefaultImplementation
 
         // Subscribes to the EventManager
         ResourceEventManager.register( new SolrEventRessourceListener( ) );
+
+        // Subscribes to the page events to index only the modified pages
+        PageService.addPageEventListener( new SolrPageEventListener( ) );
+
+        // Unregisters the indexing metrics from JMX when the webapp is stopped
+        ShutdownServiceManager.register( new SolrShutdownService( ) );
     }
 }
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.xml.sax.ContentHandler;
+
+import fr.paris.lutece.plugins.search.solr.util.LuteceSolrException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * TikaExtractionService : extracts the text of files out of the indexing threads. At most solr.tika.workers files are parsed at the same time, each one
+ * within solr.tika.timeout milliseconds, and the text is truncated to solr.tika.maxChars characters. A parsing which does not end in time is cancelled and
+ * fails, so that a malformed file cannot block the indexing. A worker which ignores the cancellation is lost : it keeps its slot of the pool until the
+ * parsing really ends, so that stuck parsings cannot use more threads and memory than the pool.
+ *
+ */
+public final class TikaExtractionService
+{
+    private static final String PROPERTY_WORKERS = "solr.tika.workers";
+    private static final String PROPERTY_TIMEOUT = "solr.tika.timeout";
+    private static final String PROPERTY_MAX_CHARS = "solr.tika.maxChars";
+    private static final int DEFAULT_WORKERS = 2;
+    private static final long DEFAULT_TIMEOUT = 60000L;
+    private static final int DEFAULT_MAX_CHARS = 100000;
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_RUNNING = 1;
+    private static final int STATE_DONE = 2;
+    private static final int STATE_ABANDONED = 3;
+
+    private static final int WORKERS_COUNT = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_WORKERS, DEFAULT_WORKERS ), 1 );
+    // a permit is held by each running parsing, until its worker really exits
+    private static final Semaphore WORKERS = new Semaphore( WORKERS_COUNT );
+    private static final AtomicInteger LOST_WORKERS = new AtomicInteger( );
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger( );
+
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor( WORKERS_COUNT, WORKERS_COUNT, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>( ), runnable -> {
+                Thread thread = new Thread( runnable, "solr-tika-worker-" + THREAD_NUMBER.incrementAndGet( ) );
+                thread.setDaemon( true );
+
+                return thread;
+            } );
+
+    /**
+     * Private constructor
+     */
+    private TikaExtractionService( )
+    {
+    }
+
+    /**
+     * Returns the maximum number of characters of an extracted text
+     * 
+     * @return the maximum number of characters
+     */
+    public static int getMaxChars( )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_MAX_CHARS, DEFAULT_MAX_CHARS );
+    }
+
+    /**
+     * Parse a stream with a worker thread
+     * 
+     * @param parser
+     *            the parser
+     * @param stream
+     *            the stream, read by the worker thread
+     * @param metadata
+     *            the metadata
+     * @param parseContext
+     *            the parse context
+     * @return the content handler containing the parsed content, truncated to the maximum number of characters
+     * @throws LuteceSolrException
+     *             if the parsing fails, is too long or is interrupted
+     */
+    public static ContentHandler parse( Parser parser, InputStream stream, Metadata metadata, ParseContext parseContext ) throws LuteceSolrException
+    {
+        long lTimeout = AppPropertiesService.getPropertyLong( PROPERTY_TIMEOUT, DEFAULT_TIMEOUT );
+        int nMaxChars = getMaxChars( );
+
+        try
+        {
+            // the lost workers keep their permit : when all of them are lost, the files fail instead of waiting forever
+            if ( !WORKERS.tryAcquire( lTimeout, TimeUnit.MILLISECONDS ) )
+            {
+                throw new LuteceSolrException( "No Tika worker available, " + LOST_WORKERS.get( ) + " workers lost out of " + WORKERS_COUNT, null );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new LuteceSolrException( "Interrupted while waiting for a Tika worker", e );
+        }
+
+        AtomicInteger state = new AtomicInteger( STATE_PENDING );
+        Future<ContentHandler> future;
+
+        try
+        {
+            future = EXECUTOR.submit( ( ) -> run( state, ( ) -> extract( parser, stream, metadata, parseContext, nMaxChars ) ) );
+        }
+        catch( RuntimeException e )
+        {
+            WORKERS.release( );
+            throw e;
+        }
+
+        try
+        {
+            return future.get( lTimeout, TimeUnit.MILLISECONDS );
+        }
+        catch( TimeoutException e )
+        {
+            abandon( state, future );
+            AppLogService.error( "Tika parsing cancelled after " + lTimeout + " ms" );
+            throw new LuteceSolrException( "Parsing cancelled after " + lTimeout + " ms", e );
+        }
+        catch( InterruptedException e )
+        {
+            abandon( state, future );
+            Thread.currentThread( ).interrupt( );
+            throw new LuteceSolrException( "Interrupted while parsing content", e );
+        }
+        catch( ExecutionException e )
+        {
+            throw new LuteceSolrException( "Error parsing content", ( e.getCause( ) instanceof Exception ) ? (Exception) e.getCause( ) : e );
+        }
+    }
+
+    /**
+     * Returns the number of workers lost by parsings which ignored their cancellation and are still running
+     * 
+     * @return the number of lost workers
+     */
+    public static int getLostWorkers( )
+    {
+        return LOST_WORKERS.get( );
+    }
+
+    /**
+     * Run a parsing in a worker thread. The permit of the parsing is released when the worker exits.
+     * 
+     * @param state
+     *            the state of the parsing
+     * @param parsing
+     *            the parsing
+     * @return the content handler containing the parsed content, or null if the parsing has been abandoned before it started
+     * @throws Exception
+     *             if the parsing fails
+     */
+    private static ContentHandler run( AtomicInteger state, Callable<ContentHandler> parsing ) throws Exception
+    {
+        if ( !state.compareAndSet( STATE_PENDING, STATE_RUNNING ) )
+        {
+            // abandoned before it started : the permit has been released by the caller
+            return null;
+        }
+
+        try
+        {
+            return parsing.call( );
+        }
+        finally
+        {
+            if ( state.getAndSet( STATE_DONE ) == STATE_ABANDONED )
+            {
+                LOST_WORKERS.decrementAndGet( );
+                AppLogService.info( "A lost Tika worker has ended its parsing" );
+            }
+
+            WORKERS.release( );
+        }
+    }
+
+    /**
+     * Cancel a parsing which has not ended in time. A running parsing which ignores the cancellation keeps its permit and is counted as lost until it
+     * ends.
+     * 
+     * @param state
+     *            the state of the parsing
+     * @param future
+     *            the future of the parsing
+     */
+    private static void abandon( AtomicInteger state, Future<ContentHandler> future )
+    {
+        future.cancel( true );
+
+        if ( state.compareAndSet( STATE_PENDING, STATE_ABANDONED ) )
+        {
+            WORKERS.release( );
+        }
+        else
+            if ( state.compareAndSet( STATE_RUNNING, STATE_ABANDONED ) )
+            {
+                int nLost = LOST_WORKERS.incrementAndGet( );
+                AppLogService.error( "Tika worker lost by a parsing ignoring its cancellation : " + nLost + " workers lost out of " + WORKERS_COUNT );
+            }
+    }
+
+    /**
+     * Parse a stream, stopping at the maximum number of characters
+     * 
+     * @param parser
+     *            the parser
+     * @param stream
+     *            the stream
+     * @param metadata
+     *            the metadata
+     * @param parseContext
+     *            the parse context
+     * @param nMaxChars
+     *            the maximum number of characters, negative for no limit
+     * @return the content handler containing the parsed content
+     * @throws Exception
+     *             if the parsing fails
+     */
+    private static ContentHandler extract( Parser parser, InputStream stream, Metadata metadata, ParseContext parseContext, int nMaxChars ) throws Exception
+    {
+        LimitedWriter writer = new LimitedWriter( nMaxChars );
+        ContentHandler handler = new BodyContentHandler( writer );
+
+        try
+        {
+            parser.parse( stream, handler, metadata, parseContext );
+        }
+        catch( Exception e )
+        {
+            if ( !writer.isLimitReached( ) )
+            {
+                throw e;
+            }
+
+            // the text is truncated
+        }
+
+        return handler;
+    }
+
+    /**
+     * Writer keeping at most a number of characters. The parsing is stopped by an exception when the limit is reached.
+     */
+    private static final class LimitedWriter extends Writer
+    {
+        private final StringBuilder _sbText = new StringBuilder( );
+        private final int _nMaxChars;
+        private boolean _bLimitReached;
+
+        /**
+         * Creates a new writer
+         * 
+         * @param nMaxChars
+         *            the maximum number of characters, negative for no limit
+         */
+        LimitedWriter( int nMaxChars )
+        {
+            _nMaxChars = nMaxChars;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write( char [ ] cbuf, int nOff, int nLen ) throws IOException
+        {
+            if ( Thread.currentThread( ).isInterrupted( ) )
+            {
+                // the parsing has been cancelled
+                throw new InterruptedIOException( );
+            }
+
+            if ( ( _nMaxChars >= 0 ) && ( ( _sbText.length( ) + nLen ) > _nMaxChars ) )
+            {
+                _sbText.append( cbuf, nOff, _nMaxChars - _sbText.length( ) );
+                _bLimitReached = true;
+                throw new IOException( "Maximum number of characters reached : " + _nMaxChars );
+            }
+
+            _sbText.append( cbuf, nOff, nLen );
+        }
+
+        /**
+         * Tells whether the text has been truncated
+         * 
+         * @return true if the limit has been reached
+         */
+        boolean isLimitReached( )
+        {
+            return _bLimitReached;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void flush( )
+        {
+            // nothing to flush
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close( )
+        {
+            // nothing to close
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString( )
+        {
+            return _sbText.toString( );
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import fr.paris.lutece.plugins.search.solr.util.SolrUtil;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ *
+ * TikaTextCacheService : keeps on disk the text extracted from the files, keyed by the SHA-256 digest of their content and by the maximum number of
+ * characters of the texts, so that an unchanged file is not parsed again. The texts are gzipped in the solr.tika.cache.directory directory of the webapp. When the cache exceeds solr.tika.cache.maxSize bytes, the
+ * least recently used texts are removed.
+ *
+ */
+public final class TikaTextCacheService
+{
+    private static final String PROPERTY_CACHE_ENABLE = "solr.tika.cache.enable";
+    private static final String PROPERTY_CACHE_DIRECTORY = "solr.tika.cache.directory";
+    private static final String PROPERTY_CACHE_MAX_SIZE = "solr.tika.cache.maxSize";
+    private static final String DEFAULT_CACHE_DIRECTORY = "/WEB-INF/plugins/solr/cache/tika";
+    private static final long DEFAULT_CACHE_MAX_SIZE = 104857600L;
+    private static final String FILE_EXTENSION = ".txt.gz";
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+    private static final String KEY_SEPARATOR = "-";
+
+    // the eviction frees a tenth of the cache, so that it does not run on every new text
+    private static final double EVICTION_RATIO = 0.9;
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final AtomicInteger HITS = new AtomicInteger( );
+    private static final AtomicInteger MISSES = new AtomicInteger( );
+    private static long _lSize = -1;
+
+    /**
+     * Private constructor
+     */
+    private TikaTextCacheService( )
+    {
+    }
+
+    /**
+     * Tells whether the cache is enabled
+     * 
+     * @return true if the cache is enabled
+     */
+    public static boolean isEnabled( )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_CACHE_ENABLE, true );
+    }
+
+    /**
+     * Compute the key of a file. The texts truncated to another maximum number of characters are not used.
+     * 
+     * @param stream
+     *            the content of the file, read until its end
+     * @return the key
+     * @throws IOException
+     *             i/o exception
+     */
+    public static String getKey( InputStream stream ) throws IOException
+    {
+        MessageDigest digest = SolrUtil.newSha256Digest( );
+        byte [ ] buffer = new byte [ BUFFER_SIZE];
+        int nRead;
+
+        while ( ( nRead = stream.read( buffer ) ) != -1 )
+        {
+            digest.update( buffer, 0, nRead );
+        }
+
+        return SolrUtil.toHexString( digest.digest( ) ) + KEY_SEPARATOR + TikaExtractionService.getMaxChars( );
+    }
+
+    /**
+     * Returns the text extracted from a file
+     * 
+     * @param strKey
+     *            the key of the file
+     * @return the text, or null if the text is not in the cache
+     */
+    public static String get( String strKey )
+    {
+        Path file = getDirectory( ).resolve( strKey + FILE_EXTENSION );
+
+        if ( !Files.isRegularFile( file ) )
+        {
+            MISSES.incrementAndGet( );
+
+            return null;
+        }
+
+        StringBuilder sbText = new StringBuilder( );
+
+        try ( Reader reader = new BufferedReader( new InputStreamReader( new GZIPInputStream( Files.newInputStream( file ) ), StandardCharsets.UTF_8 ) ) )
+        {
+            char [ ] buffer = new char [ BUFFER_SIZE];
+            int nRead;
+
+            while ( ( nRead = reader.read( buffer ) ) != -1 )
+            {
+                sbText.append( buffer, 0, nRead );
+            }
+
+            // the modification date is the date of the last use
+            Files.setLastModifiedTime( file, FileTime.fromMillis( System.currentTimeMillis( ) ) );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to read the cached text " + file, e );
+            MISSES.incrementAndGet( );
+
+            return null;
+        }
+
+        HITS.incrementAndGet( );
+
+        return sbText.toString( );
+    }
+
+    /**
+     * Store the text extracted from a file
+     * 
+     * @param strKey
+     *            the key of the file
+     * @param strText
+     *            the text
+     */
+    public static void put( String strKey, String strText )
+    {
+        Path directory = getDirectory( );
+        Path file = directory.resolve( strKey + FILE_EXTENSION );
+        Path temporaryFile = directory.resolve( strKey + TEMPORARY_FILE_EXTENSION + Thread.currentThread( ).getId( ) );
+
+        try
+        {
+            Files.createDirectories( directory );
+
+            try ( Writer writer = new OutputStreamWriter( new GZIPOutputStream( Files.newOutputStream( temporaryFile ) ), StandardCharsets.UTF_8 ) )
+            {
+                writer.write( strText );
+            }
+
+            // the text of the same file may have been cached meanwhile by another thread : its size is replaced
+            long lPreviousSize = Files.isRegularFile( file ) ? Files.size( file ) : 0L;
+
+            // the readers never see a partial file
+            Files.move( temporaryFile, file, StandardCopyOption.REPLACE_EXISTING );
+            addSize( Files.size( file ) - lPreviousSize );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to cache the text " + file, e );
+
+            try
+            {
+                Files.deleteIfExists( temporaryFile );
+            }
+            catch( IOException ex )
+            {
+                AppLogService.error( "Unable to delete " + temporaryFile, ex );
+            }
+        }
+    }
+
+    /**
+     * Reset the hit and miss counters, at the beginning of an indexing
+     */
+    public static void resetCounters( )
+    {
+        HITS.set( 0 );
+        MISSES.set( 0 );
+    }
+
+    /**
+     * Returns the number of texts found in the cache since the counters were reset
+     * 
+     * @return the number of hits
+     */
+    public static int getHits( )
+    {
+        return HITS.get( );
+    }
+
+    /**
+     * Returns the number of texts not found in the cache since the counters were reset
+     * 
+     * @return the number of misses
+     */
+    public static int getMisses( )
+    {
+        return MISSES.get( );
+    }
+
+    /**
+     * Returns the directory of the cache
+     * 
+     * @return the directory
+     */
+    private static Path getDirectory( )
+    {
+        return Paths.get( AppPathService.getAbsolutePathFromRelativePath(
+                AppPropertiesService.getProperty( PROPERTY_CACHE_DIRECTORY, DEFAULT_CACHE_DIRECTORY ) ) );
+    }
+
+    /**
+     * Add the size of a new text, and remove the least recently used texts when the cache is full
+     * 
+     * @param lFileSize
+     *            the size of the new text, minus the size of the text it replaces
+     * @throws IOException
+     *             i/o exception
+     */
+    private static synchronized void addSize( long lFileSize ) throws IOException
+    {
+        if ( _lSize < 0 )
+        {
+            // the size of the texts cached by the previous runs
+            _lSize = 0;
+
+            for ( Path file : listFiles( ) )
+            {
+                _lSize += Files.size( file );
+            }
+        }
+        else
+        {
+            _lSize += lFileSize;
+        }
+
+        long lMaxSize = AppPropertiesService.getPropertyLong( PROPERTY_CACHE_MAX_SIZE, DEFAULT_CACHE_MAX_SIZE );
+
+        if ( _lSize > lMaxSize )
+        {
+            evict( (long) ( lMaxSize * EVICTION_RATIO ) );
+        }
+    }
+
+    /**
+     * Remove the least recently used texts
+     * 
+     * @param lTargetSize
+     *            the size of the cache after the eviction
+     * @throws IOException
+     *             i/o exception
+     */
+    private static void evict( long lTargetSize ) throws IOException
+    {
+        List<Path> listFiles = listFiles( );
+        Map<Path, FileTime> mapLastModified = new HashMap<>( );
+        long lSize = 0;
+
+        for ( Path file : listFiles )
+        {
+            lSize += Files.size( file );
+            mapLastModified.put( file, Files.getLastModifiedTime( file ) );
+        }
+
+        listFiles.sort( Comparator.comparing( mapLastModified::get ) );
+
+        for ( Path file : listFiles )
+        {
+            if ( lSize <= lTargetSize )
+            {
+                break;
+            }
+
+            long lFileSize = Files.size( file );
+
+            if ( Files.deleteIfExists( file ) )
+            {
+                lSize -= lFileSize;
+            }
+        }
+
+        _lSize = lSize;
+    }
+
+    /**
+     * List the texts of the cache
+     * 
+     * @return the files of the texts
+     * @throws IOException
+     *             i/o exception
+     */
+    private static List<Path> listFiles( ) throws IOException
+    {
+        Path directory = getDirectory( );
+
+        if ( !Files.isDirectory( directory ) )
+        {
+            return new ArrayList<>( );
+        }
+
+        try ( Stream<Path> stream = Files.list( directory ) )
+        {
+            return stream.filter( file -> file.getFileName( ).toString( ).endsWith( FILE_EXTENSION ) ).collect( Collectors.toList( ) );
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.lang.StringEscapeUtils;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Extracts the text of an HTML page. The page is read in a single pass: the content of the head, script and style elements is skipped, the entities are
+ * decoded and the whitespaces are collapsed.
+ */
+public final class HtmlTextExtractor
+{
+    private static final String PROPERTY_DOCUMENT_MAX_SIZE = "solr.document.max.size";
+    // 1Mo
+    private static final int DEFAULT_DOCUMENT_MAX_SIZE = 1048576;
+    private static final int ENTITY_MAX_LENGTH = 32;
+    // the text of a page is usually a small part of its markup
+    private static final int TEXT_CAPACITY_RATIO = 4;
+    private static final int TEXT_MIN_CAPACITY = 16;
+    private static final char NO_BREAK_SPACE = '\u00A0';
+    private static final String COMMENT_START = "<!--";
+    private static final String COMMENT_END = "-->";
+    private static final Set<String> SKIPPED_ELEMENTS = new HashSet<>( Arrays.asList( "head", "script", "style", "template" ) );
+    private static final Set<String> BLOCK_ELEMENTS = new HashSet<>( Arrays.asList( "address", "article", "aside", "blockquote", "body", "br", "caption",
+            "dd", "div", "dl", "dt", "fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "html", "li",
+            "main", "nav", "ol", "option", "p", "pre", "section", "table", "tbody", "td", "textarea", "tfoot", "th", "thead", "title", "tr", "ul" ) );
+
+    private HtmlTextExtractor( )
+    {
+    }
+
+    /**
+     * Extract the text of an HTML page, limited to solr.document.max.size characters
+     * 
+     * @param strHtml
+     *            the HTML page
+     * @return the text
+     */
+    public static String extract( String strHtml )
+    {
+        return extract( strHtml, AppPropertiesService.getPropertyInt( PROPERTY_DOCUMENT_MAX_SIZE, DEFAULT_DOCUMENT_MAX_SIZE ) );
+    }
+
+    /**
+     * Extract the text of an HTML page
+     * 
+     * @param strHtml
+     *            the HTML page
+     * @param nMaxChars
+     *            the maximum number of characters of the text, or a negative value for no limit
+     * @return the text
+     */
+    public static String extract( String strHtml, int nMaxChars )
+    {
+        if ( strHtml == null )
+        {
+            return "";
+        }
+
+        int nLimit = ( nMaxChars < 0 ) ? Integer.MAX_VALUE : nMaxChars;
+        int nLength = strHtml.length( );
+        TextBuilder text = new TextBuilder( Math.min( ( nLength / TEXT_CAPACITY_RATIO ) + TEXT_MIN_CAPACITY, nLimit ), nLimit );
+        int nIndex = 0;
+
+        while ( ( nIndex < nLength ) && !text.isFull( ) )
+        {
+            char c = strHtml.charAt( nIndex );
+
+            if ( c == '<' )
+            {
+                nIndex = readMarkup( strHtml, nIndex, text );
+            }
+            else
+                if ( c == '&' )
+                {
+                    nIndex = readEntity( strHtml, nIndex, text );
+                }
+                else
+                {
+                    text.append( c );
+                    nIndex++;
+                }
+        }
+
+        return text.toString( );
+    }
+
+    /**
+     * Read a tag, a comment or a declaration
+     * 
+     * @param strHtml
+     *            the HTML page
+     * @param nStart
+     *            the index of the opening '&lt;'
+     * @param text
+     *            the text being built
+     * @return the index following the markup
+     */
+    private static int readMarkup( String strHtml, int nStart, TextBuilder text )
+    {
+        if ( strHtml.startsWith( COMMENT_START, nStart ) )
+        {
+            int nEnd = strHtml.indexOf( COMMENT_END, nStart + COMMENT_START.length( ) );
+
+            return ( nEnd < 0 ) ? strHtml.length( ) : ( nEnd + COMMENT_END.length( ) );
+        }
+
+        int nLength = strHtml.length( );
+        int nIndex = nStart + 1;
+        boolean bClosing = ( nIndex < nLength ) && ( strHtml.charAt( nIndex ) == '/' );
+
+        if ( bClosing )
+        {
+            nIndex++;
+        }
+
+        if ( ( nIndex >= nLength ) || !( Character.isLetter( strHtml.charAt( nIndex ) ) || ( strHtml.charAt( nIndex ) == '!' )
+                || ( strHtml.charAt( nIndex ) == '?' ) ) )
+        {
+            // not a tag : a lone '<' of the text
+            text.append( '<' );
+
+            return nStart + 1;
+        }
+
+        int nNameStart = nIndex;
+
+        while ( ( nIndex < nLength ) && isNameChar( strHtml.charAt( nIndex ) ) )
+        {
+            nIndex++;
+        }
+
+        String strName = strHtml.substring( nNameStart, nIndex ).toLowerCase( Locale.ENGLISH );
+        int nEnd = findTagEnd( strHtml, nIndex );
+        boolean bSelfClosing = ( nEnd > 0 ) && ( strHtml.charAt( nEnd - 1 ) == '/' );
+
+        if ( BLOCK_ELEMENTS.contains( strName ) )
+        {
+            text.appendSpace( );
+        }
+
+        if ( !bClosing && !bSelfClosing && SKIPPED_ELEMENTS.contains( strName ) )
+        {
+            return skipElement( strHtml, nEnd + 1, strName );
+        }
+
+        return nEnd + 1;
+    }
+
+    /**
+     * Find the '&gt;' closing a tag, ignoring the ones in the quoted attribute values
+     * 
+     * @param strHtml
+     *            the HTML page
+     * @param nStart
+     *            the index following the name of the tag
+     * @return the index of the closing '&gt;', or the last index of the page
+     */
+    private static int findTagEnd( String strHtml, int nStart )
+    {
+        char cQuote = 0;
+
+        for ( int nIndex = nStart; nIndex < strHtml.length( ); nIndex++ )
+        {
+            char c = strHtml.charAt( nIndex );
+
+            if ( cQuote != 0 )
+            {
+                if ( c == cQuote )
+                {
+                    cQuote = 0;
+                }
+            }
+            else
+                if ( ( c == '"' ) || ( c == '\'' ) )
+                {
+                    cQuote = c;
+                }
+                else
+                    if ( c == '>' )
+                    {
+                        return nIndex;
+                    }
+        }
+
+        return strHtml.length( ) - 1;
+    }
+
+    /**
+     * Skip the content of an element up to its closing tag
+     * 
+     * @param strHtml
+     *            the HTML page
+     * @param nStart
+     *            the index following the opening tag
+     * @param strName
+     *            the name of the element, in lower case
+     * @return the index following the closing tag
+     */
+    private static int skipElement( String strHtml, int nStart, String strName )
+    {
+        int nLength = strHtml.length( );
+        int nIndex = strHtml.indexOf( "</", nStart );
+
+        while ( nIndex >= 0 )
+        {
+            int nNameEnd = nIndex + 2 + strName.length( );
+
+            if ( strHtml.regionMatches( true, nIndex + 2, strName, 0, strName.length( ) )
+                    && ( ( nNameEnd >= nLength ) || !isNameChar( strHtml.charAt( nNameEnd ) ) ) )
+            {
+                return findTagEnd( strHtml, nNameEnd ) + 1;
+            }
+
+            nIndex = strHtml.indexOf( "</", nIndex + 2 );
+        }
+
+        return nLength;
+    }
+
+    /**
+     * Read an entity and append the character it stands for
+     * 
+     * @param strHtml
+     *            the HTML page
+     * @param nStart
+     *            the index of the '&amp;'
+     * @param text
+     *            the text being built
+     * @return the index following the entity
+     */
+    private static int readEntity( String strHtml, int nStart, TextBuilder text )
+    {
+        int nEnd = nStart + 1;
+        int nMaxEnd = Math.min( nStart + ENTITY_MAX_LENGTH, strHtml.length( ) );
+
+        while ( ( nEnd < nMaxEnd ) && ( Character.isLetterOrDigit( strHtml.charAt( nEnd ) ) || ( strHtml.charAt( nEnd ) == '#' ) ) )
+        {
+            nEnd++;
+        }
+
+        if ( ( nEnd > nStart + 1 ) && ( nEnd < nMaxEnd ) && ( strHtml.charAt( nEnd ) == ';' ) )
+        {
+            String strEntity = strHtml.substring( nStart, nEnd + 1 );
+            String strDecoded = StringEscapeUtils.unescapeHtml( strEntity );
+
+            if ( !strDecoded.equals( strEntity ) )
+            {
+                text.append( strDecoded );
+
+                return nEnd + 1;
+            }
+        }
+
+        // unknown entity : the '&' is kept as is
+        text.append( '&' );
+
+        return nStart + 1;
+    }
+
+    /**
+     * Tells whether a character can be part of the name of a tag
+     * 
+     * @param c
+     *            the character
+     * @return true if the character belongs to the name
+     */
+    private static boolean isNameChar( char c )
+    {
+        return Character.isLetterOrDigit( c ) || ( c == '-' ) || ( c == ':' ) || ( c == '!' ) || ( c == '?' );
+    }
+
+    /**
+     * Text with collapsed whitespaces and a maximum length
+     */
+    private static final class TextBuilder
+    {
+        private final StringBuilder _sbText;
+        private final int _nMaxChars;
+        private boolean _bPendingSpace;
+
+        /**
+         * Constructor
+         * 
+         * @param nCapacity
+         *            the initial capacity
+         * @param nMaxChars
+         *            the maximum number of characters
+         */
+        TextBuilder( int nCapacity, int nMaxChars )
+        {
+            _sbText = new StringBuilder( nCapacity );
+            _nMaxChars = nMaxChars;
+        }
+
+        /**
+         * Append a character, a whitespace being collapsed with the following ones
+         * 
+         * @param c
+         *            the character
+         */
+        void append( char c )
+        {
+            if ( Character.isWhitespace( c ) || ( c == NO_BREAK_SPACE ) )
+            {
+                appendSpace( );
+            }
+            else
+                if ( !isFull( ) )
+                {
+                    if ( _bPendingSpace && ( _sbText.length( ) > 0 ) )
+                    {
+                        _sbText.append( ' ' );
+                    }
+
+                    _bPendingSpace = false;
+
+                    if ( !isFull( ) )
+                    {
+                        _sbText.append( c );
+                    }
+                }
+        }
+
+        /**
+         * Append a string
+         * 
+         * @param str
+         *            the string
+         */
+        void append( String str )
+        {
+            for ( int i = 0; i < str.length( ); i++ )
+            {
+                append( str.charAt( i ) );
+            }
+        }
+
+        /**
+         * Separate the previous word from the next one
+         */
+        void appendSpace( )
+        {
+            _bPendingSpace = true;
+        }
+
+        /**
+         * Tells whether the maximum length is reached
+         * 
+         * @return true if no more character can be appended
+         */
+        boolean isFull( )
+        {
+            return _sbText.length( ) >= _nMaxChars;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString( )
+        {
+            return _sbText.toString( );
+        }
+    }
+}
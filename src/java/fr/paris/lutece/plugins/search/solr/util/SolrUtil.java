@@ -50,6 +50,8 @@ import org.apache.solr.common.SolrDocumentList;
 import java.io.UnsupportedEncodingException;
 
 import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -69,6 +71,8 @@ public final class SolrUtil
     private static final String MESSAGE_ENCODING_ERROR = "portal.search.message.encodingError";
     private static final String PROPERTY_ENCODE_URI_ENCODING = "search.encode.uri.encoding";
     private static final String DEFAULT_URI_ENCODING = "ISO-8859-1";
+    private static final String ALGORITHM_SHA_256 = "SHA-256";
+    private static final char [ ] HEX_DIGITS = "0123456789abcdef".toCharArray( );
 
     /**
      * Empty private constructor
@@ -217,4 +221,42 @@ public final class SolrUtil
     {
         return AppPropertiesService.getProperty( PROPERTY_ENCODE_URI_ENCODING, DEFAULT_URI_ENCODING );
     }
+
+    /**
+     * Creates a SHA-256 message digest
+     * 
+     * @return the message digest
+     */
+    public static MessageDigest newSha256Digest( )
+    {
+        try
+        {
+            return MessageDigest.getInstance( ALGORITHM_SHA_256 );
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Convert bytes, like a digest, into an hexadecimal string
+     * 
+     * @param bytes
+     *            the bytes
+     * @return the hexadecimal string, in lower case
+     */
+    public static String toHexString( byte [ ] bytes )
+    {
+        char [ ] hex = new char [ bytes.length * 2];
+
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            hex [2 * i] = HEX_DIGITS [( bytes [i] >> 4 ) & 0xF];
+            hex [( 2 * i ) + 1] = HEX_DIGITS [bytes [i] & 0xF];
+        }
+
+        return new String( hex );
+    }
 }
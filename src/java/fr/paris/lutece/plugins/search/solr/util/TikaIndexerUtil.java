@@ -36,21 +36,23 @@ package fr.paris.lutece.plugins.search.solr.util;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import org.apache.tika.config.TikaConfig;
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.metadata.Metadata;
-import org.apache.tika.parser.AutoDetectParser;
 import org.apache.tika.parser.ParseContext;
-import org.apache.tika.parser.html.HtmlParser;
 import org.apache.tika.sax.BodyContentHandler;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
 import fr.paris.lutece.plugins.search.solr.indexer.SolrItem;
-import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.plugins.search.solr.service.TikaExtractionService;
+import fr.paris.lutece.plugins.search.solr.service.TikaTextCacheService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 /**
@@ -60,7 +62,8 @@ public final class TikaIndexerUtil
 {
     // 1Mo
     private static final int DEFAULT_DOCUMENT_SIZE = 1048576;
-    private static final String CONFIG = AppPathService.getAbsolutePathFromRelativePath( "/WEB-INF/conf/tika.xml" );
+    private static final String PROPERTY_ITEM_MAX_CHARS = "solr.tika.item.maxChars";
+    private static final int DEFAULT_ITEM_MAX_CHARS = 1048576;
 
     private TikaIndexerUtil( )
     {
@@ -80,7 +83,8 @@ public final class TikaIndexerUtil
         try
         {
             ContentHandler handler = new BodyContentHandler( AppPropertiesService.getPropertyInt( "solr.document.max.size", DEFAULT_DOCUMENT_SIZE ) );
-            new HtmlParser( ).parse( new ByteArrayInputStream( strContentToIndex.getBytes( ) ), handler, metadata, parseContext );
+            TikaParserRegistry.getHtmlParser( ).parse( new ByteArrayInputStream( strContentToIndex.getBytes( StandardCharsets.UTF_8 ) ), handler, metadata,
+                    parseContext );
             return handler;
         }
         catch( IOException | SAXException | TikaException e )
@@ -98,17 +102,8 @@ public final class TikaIndexerUtil
      */
     public static ContentHandler parse( InputStream stream, Metadata metadata, ParseContext parseContext ) throws LuteceSolrException
     {
-        try
-        {
-            ContentHandler handler = new BodyContentHandler( );
-            AutoDetectParser parser = new AutoDetectParser( new TikaConfig( CONFIG ) );
-            parser.parse( stream, handler, metadata, parseContext );
-            return handler;
-        }
-        catch( IOException | SAXException | TikaException e )
-        {
-            throw new LuteceSolrException( "Error parsing content", e );
-        }
+        // the parsing runs in a Tika worker, with a time limit and a maximum number of characters
+        return TikaExtractionService.parse( TikaParserRegistry.getAutoDetectParser( ), stream, metadata, parseContext );
     }
 
     /**
@@ -148,6 +143,36 @@ public final class TikaIndexerUtil
         addFileContentToSolrItem( item, Collections.singletonList( fileContent ) );
     }
 
+    /**
+     * Parse and add the content of a file to the solr item. The file is read while it is parsed.
+     * 
+     * @param item
+     *            the item
+     * @param fileContentSupplier
+     *            the supplier of the content of the file
+     * @throws LuteceSolrException
+     *             if the file cannot be read or parsed
+     */
+    public static void addFileContentToSolrItem( SolrItem item, IFileContentSupplier fileContentSupplier ) throws LuteceSolrException
+    {
+        addFileStreamsToSolrItem( item, Collections.singletonList( fileContentSupplier ) );
+    }
+
+    /**
+     * Parse and add the content of a file to the solr item. The file is read while it is parsed.
+     * 
+     * @param item
+     *            the item
+     * @param file
+     *            the path of the file
+     * @throws LuteceSolrException
+     *             if the file cannot be read or parsed
+     */
+    public static void addFileContentToSolrItem( SolrItem item, Path file ) throws LuteceSolrException
+    {
+        addFilesToSolrItem( item, Collections.singletonList( file ) );
+    }
+
     /**
      * Parse and add the content of multiples files to the solr item.
      * 
@@ -158,14 +183,74 @@ public final class TikaIndexerUtil
      */
     public static void addFileContentToSolrItem( SolrItem item, List<byte [ ]> fileContentList ) throws LuteceSolrException
     {
-        StringBuilder content = new StringBuilder( );
+        List<IFileContentSupplier> listSuppliers = new ArrayList<>( );
+
         for ( byte [ ] fileContent : fileContentList )
         {
+            listSuppliers.add( ( ) -> new ByteArrayInputStream( fileContent ) );
+        }
+
+        addFileStreamsToSolrItem( item, listSuppliers );
+    }
+
+    /**
+     * Parse and add the content of multiples files to the solr item. The files are read one at a time, while they are parsed.
+     * 
+     * @param item
+     *            the item
+     * @param listFiles
+     *            the paths of the files
+     * @throws LuteceSolrException
+     *             if a file cannot be read or parsed
+     */
+    public static void addFilesToSolrItem( SolrItem item, List<Path> listFiles ) throws LuteceSolrException
+    {
+        List<IFileContentSupplier> listSuppliers = new ArrayList<>( );
+
+        for ( Path file : listFiles )
+        {
+            listSuppliers.add( ( ) -> Files.newInputStream( file ) );
+        }
+
+        addFileStreamsToSolrItem( item, listSuppliers );
+    }
+
+    /**
+     * Parse and add the content of multiples files to the solr item. The files are opened one at a time, while they are parsed, and the text of the item is
+     * limited to solr.tika.item.maxChars characters : the files beyond the limit are not read.
+     * 
+     * @param item
+     *            the item
+     * @param listFileContentSuppliers
+     *            the suppliers of the content of the files
+     * @throws LuteceSolrException
+     *             if a file cannot be read or parsed
+     */
+    public static void addFileStreamsToSolrItem( SolrItem item, List<IFileContentSupplier> listFileContentSuppliers ) throws LuteceSolrException
+    {
+        int nMaxChars = AppPropertiesService.getPropertyInt( PROPERTY_ITEM_MAX_CHARS, DEFAULT_ITEM_MAX_CHARS );
+        StringBuilder content = new StringBuilder( );
+
+        for ( IFileContentSupplier fileContentSupplier : listFileContentSuppliers )
+        {
+            if ( ( nMaxChars >= 0 ) && ( content.length( ) >= nMaxChars ) )
+            {
+                break;
+            }
+
             content.append( " " );
-            try ( InputStream bais = new ByteArrayInputStream( fileContent ) )
+
+            try
             {
-                ContentHandler handler = parse( bais );
-                content.append( handler.toString( ) );
+                String strText = extractText( fileContentSupplier );
+                int nLength = strText.length( );
+
+                if ( nMaxChars >= 0 )
+                {
+                    nLength = Math.min( nLength, Math.max( nMaxChars - content.length( ), 0 ) );
+                }
+
+                content.append( strText, 0, nLength );
             }
             catch( IOException e )
             {
@@ -174,4 +259,50 @@ public final class TikaIndexerUtil
         }
         item.setFileContent( content.toString( ) );
     }
+
+    /**
+     * Extract the text of a file, or get it from the cache of the extracted texts
+     * 
+     * @param fileContentSupplier
+     *            the supplier of the content of the file
+     * @return the text
+     * @throws LuteceSolrException
+     *             if the parsing fails
+     * @throws IOException
+     *             i/o exception
+     */
+    private static String extractText( IFileContentSupplier fileContentSupplier ) throws LuteceSolrException, IOException
+    {
+        String strKey = null;
+
+        if ( TikaTextCacheService.isEnabled( ) )
+        {
+            // the file is read once to compute its key, and once more to be parsed if its text is not cached
+            try ( InputStream stream = fileContentSupplier.openStream( ) )
+            {
+                strKey = TikaTextCacheService.getKey( stream );
+            }
+
+            String strText = TikaTextCacheService.get( strKey );
+
+            if ( strText != null )
+            {
+                return strText;
+            }
+        }
+
+        String strText;
+
+        try ( InputStream stream = fileContentSupplier.openStream( ) )
+        {
+            strText = parse( stream ).toString( );
+        }
+
+        if ( strKey != null )
+        {
+            TikaTextCacheService.put( strKey, strText );
+        }
+
+        return strText;
+    }
 }
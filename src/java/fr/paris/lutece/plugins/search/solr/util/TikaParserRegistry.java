@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.html.HtmlParser;
+import org.xml.sax.SAXException;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+
+/**
+ * Shares the Tika parsers between the indexing threads. The configuration /WEB-INF/conf/tika.xml is loaded once, and loaded again when the file is modified.
+ */
+public final class TikaParserRegistry
+{
+    private static final String CONFIG = AppPathService.getAbsolutePathFromRelativePath( "/WEB-INF/conf/tika.xml" );
+    private static final Parser HTML_PARSER = new HtmlParser( );
+    private static volatile LoadedParser _loadedParser;
+
+    /**
+     * Private constructor
+     */
+    private TikaParserRegistry( )
+    {
+    }
+
+    /**
+     * Returns the parser detecting the type of the content, configured by tika.xml. The parser is thread-safe.
+     * 
+     * @return the parser
+     * @throws LuteceSolrException
+     *             if the configuration cannot be loaded
+     */
+    public static Parser getAutoDetectParser( ) throws LuteceSolrException
+    {
+        long lLastModified = new File( CONFIG ).lastModified( );
+        LoadedParser loadedParser = _loadedParser;
+
+        if ( ( loadedParser == null ) || ( loadedParser._lLastModified != lLastModified ) )
+        {
+            loadedParser = load( lLastModified );
+        }
+
+        return loadedParser._parser;
+    }
+
+    /**
+     * Returns the HTML parser. The parser is thread-safe.
+     * 
+     * @return the parser
+     */
+    public static Parser getHtmlParser( )
+    {
+        return HTML_PARSER;
+    }
+
+    /**
+     * Load the configuration, unless another thread has just loaded it
+     * 
+     * @param lLastModified
+     *            the modification date of the configuration file
+     * @return the parser
+     * @throws LuteceSolrException
+     *             if the configuration cannot be loaded
+     */
+    private static synchronized LoadedParser load( long lLastModified ) throws LuteceSolrException
+    {
+        LoadedParser loadedParser = _loadedParser;
+
+        if ( ( loadedParser != null ) && ( loadedParser._lLastModified == lLastModified ) )
+        {
+            return loadedParser;
+        }
+
+        try
+        {
+            loadedParser = new LoadedParser( new AutoDetectParser( new TikaConfig( CONFIG ) ), lLastModified );
+        }
+        catch( IOException | SAXException | TikaException e )
+        {
+            throw new LuteceSolrException( "Error loading the Tika configuration " + CONFIG, e );
+        }
+
+        _loadedParser = loadedParser;
+        AppLogService.info( "Tika configuration loaded from " + CONFIG );
+
+        return loadedParser;
+    }
+
+    /**
+     * A parser and the modification date of its configuration
+     */
+    private static final class LoadedParser
+    {
+        private final Parser _parser;
+        private final long _lLastModified;
+
+        /**
+         * Constructor
+         * 
+         * @param parser
+         *            the parser
+         * @param lLastModified
+         *            the modification date of the configuration file
+         */
+        LoadedParser( Parser parser, long lLastModified )
+        {
+            _parser = parser;
+            _lLastModified = lLastModified;
+        }
+    }
+}
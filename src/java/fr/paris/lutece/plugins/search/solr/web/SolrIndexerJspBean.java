@@ -33,17 +33,27 @@
  */
 package fr.paris.lutece.plugins.search.solr.web;
 
+import fr.paris.lutece.plugins.search.solr.business.indexeraction.SolrIndexerActionFailedHome;
 import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexerService;
+import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexingEvent.Status;
+import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexingLog;
+import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexingMetrics;
+import fr.paris.lutece.plugins.search.solr.service.SolrIndexerActionRetryService;
+import fr.paris.lutece.plugins.search.solr.service.SolrPlugin;
 import fr.paris.lutece.portal.service.template.AppTemplateService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.web.admin.PluginAdminPageJspBean;
 import fr.paris.lutece.util.html.HtmlTemplate;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+
 /**
  *
  * SolrIndexerJspBean
@@ -57,12 +67,27 @@ public class SolrIndexerJspBean extends PluginAdminPageJspBean
     public static final String RIGHT_INDEXER = "SOLR_INDEX_MANAGEMENT";
     private static final String TEMPLATE_MANAGE_INDEXER = "admin/search/solr_manage_search_indexation.html";
     private static final String TEMPLATE_INDEXER_LOGS = "admin/search/solr_search_indexation_logs.html";
+    private static final String TEMPLATE_FAILED_ACTIONS = "admin/search/solr_manage_failed_actions.html";
     private static final String MARK_LOGS = "logs";
     private static final String MARK_RUNNING = "running";
     private static final String MARK_COMMAND = "command";
     private static final String MARK_INDEXERS_LIST = "indexers_list";
+    private static final String MARK_EVENTS = "events";
+    private static final String MARK_EVENTS_COUNTERS = "events_counters";
+    private static final String MARK_EVENTS_PAGE = "events_page";
+    private static final String MARK_EVENTS_PAGES_COUNT = "events_pages_count";
+    private static final String MARK_METRICS = "metrics";
+    private static final String MARK_FAILED_ACTIONS = "failed_actions";
+    private static final String MARK_FAILED_ACTIONS_COUNT = "failed_actions_count";
+    private static final String PARAMETER_EVENTS_PAGE = "events_page";
+    private static final String PARAMETER_ID_ACTION_FAILED = "id_action_failed";
+    private static final String PARAMETER_REPLAY = "replay";
+    private static final String PARAMETER_PURGE = "purge";
+    private static final int EVENTS_PER_PAGE = 50;
+    private static final int FAILED_ACTIONS_MAX_COUNT = 200;
 
     private static final String JSP_VIEW_INDEXATION = "ViewSearchIndexation.jsp";
+    private static final String JSP_MANAGE_FAILED_ACTIONS = "ManageFailedActions.jsp";
     private static final String INDEX_INCR = "incremental";
     private static final String INDEX_TOTAL = "total";
 
@@ -70,29 +95,46 @@ public class SolrIndexerJspBean extends PluginAdminPageJspBean
     private static String _threadLogs;
     private static String _command;
 
-    private Map<String, Object> getModel( )
+    private Map<String, Object> getModel( HttpServletRequest request )
     {
         Map<String, Object> model = new HashMap<>( );
 
-        String strLogs;
-        boolean bRunning;
-        if ( _thread != null )
-        {
-            strLogs = SolrIndexerService.getSbLogs( ).toString( );
-            bRunning = true;
-        }
-        else
-        {
-            strLogs = _threadLogs;
-            bRunning = false;
-        }
+        // the text logs are only complete at the end of the run : a running indexing is followed by its events
+        boolean bRunning = _thread != null;
 
-        model.put( MARK_LOGS, strLogs );
+        model.put( MARK_LOGS, bRunning ? StringUtils.EMPTY : StringUtils.defaultString( _threadLogs ) );
         model.put( MARK_RUNNING, bRunning );
         model.put( MARK_COMMAND, _command );
+        putEvents( model, request );
         return model;
     }
 
+    /**
+     * Put a page of the last events of the run into a model
+     *
+     * @param model
+     *            the model
+     * @param request
+     *            the http request
+     */
+    private static void putEvents( Map<String, Object> model, HttpServletRequest request )
+    {
+        // only a page of the last events of the run is read
+        int nPagesCount = Math.max( ( SolrIndexingLog.getEventCount( ) + EVENTS_PER_PAGE - 1 ) / EVENTS_PER_PAGE, 1 );
+        int nPage = Math.min( Math.max( NumberUtils.toInt( request.getParameter( PARAMETER_EVENTS_PAGE ), 1 ), 1 ), nPagesCount );
+        Map<String, Long> mapCounters = new LinkedHashMap<>( );
+
+        for ( Map.Entry<Status, Long> counter : SolrIndexingLog.getCounters( ).entrySet( ) )
+        {
+            mapCounters.put( counter.getKey( ).name( ), counter.getValue( ) );
+        }
+
+        model.put( MARK_EVENTS, SolrIndexingLog.getEvents( ( nPage - 1 ) * EVENTS_PER_PAGE, EVENTS_PER_PAGE ) );
+        model.put( MARK_EVENTS_COUNTERS, mapCounters );
+        model.put( MARK_EVENTS_PAGE, nPage );
+        model.put( MARK_EVENTS_PAGES_COUNT, nPagesCount );
+    }
+
     /**
      * Displays the indexing parameters
      *
@@ -102,8 +144,9 @@ public class SolrIndexerJspBean extends PluginAdminPageJspBean
      */
     public String getIndexingProperties( HttpServletRequest request )
     {
-        Map<String, Object> model = getModel( );
+        Map<String, Object> model = getModel( request );
         model.put( MARK_INDEXERS_LIST, SolrIndexerService.getIndexers( ) );
+        model.put( MARK_FAILED_ACTIONS_COUNT, SolrIndexerActionFailedHome.getCount( SolrPlugin._plugin ) );
 
         HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_MANAGE_INDEXER, getLocale( ), model );
 
@@ -119,13 +162,71 @@ public class SolrIndexerJspBean extends PluginAdminPageJspBean
      */
     public String getIndexing( HttpServletRequest request )
     {
-        Map<String, Object> model = getModel( );
+        Map<String, Object> model = getModel( request );
+        model.put( MARK_METRICS, SolrIndexingMetrics.getMetricsList( ) );
 
         HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_INDEXER_LOGS, getLocale( ), model );
 
         return getAdminPage( template.getHtml( ) );
     }
 
+    /**
+     * Displays the actions given up by the incremental indexing
+     *
+     * @param request
+     *            the http request
+     * @return the html code which displays the failed actions
+     */
+    public String getFailedActions( HttpServletRequest request )
+    {
+        Map<String, Object> model = new HashMap<>( );
+        model.put( MARK_FAILED_ACTIONS, SolrIndexerActionFailedHome.getList( FAILED_ACTIONS_MAX_COUNT, SolrPlugin._plugin ) );
+        model.put( MARK_FAILED_ACTIONS_COUNT, SolrIndexerActionFailedHome.getCount( SolrPlugin._plugin ) );
+
+        HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_FAILED_ACTIONS, getLocale( ), model );
+
+        return getAdminPage( template.getHtml( ) );
+    }
+
+    /**
+     * Replays or purges a failed action, or all of them if no action is specified
+     *
+     * @param request
+     *            the http request
+     * @return the url of the failed actions page
+     */
+    public String doFailedActions( HttpServletRequest request )
+    {
+        String strIdActionFailed = request.getParameter( PARAMETER_ID_ACTION_FAILED );
+        int nIdActionFailed = NumberUtils.toInt( strIdActionFailed, -1 );
+
+        if ( request.getParameter( PARAMETER_REPLAY ) != null )
+        {
+            if ( strIdActionFailed == null )
+            {
+                SolrIndexerActionRetryService.replayAll( );
+            }
+            else
+            {
+                SolrIndexerActionRetryService.replay( nIdActionFailed );
+            }
+        }
+        else
+            if ( request.getParameter( PARAMETER_PURGE ) != null )
+            {
+                if ( strIdActionFailed == null )
+                {
+                    SolrIndexerActionRetryService.purgeAll( );
+                }
+                else
+                {
+                    SolrIndexerActionRetryService.purge( nIdActionFailed );
+                }
+            }
+
+        return JSP_MANAGE_FAILED_ACTIONS;
+    }
+
     /**
      * Calls the indexing process
      *
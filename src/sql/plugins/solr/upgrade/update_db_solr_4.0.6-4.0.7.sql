@@ -0,0 +1,36 @@
+DROP TABLE IF EXISTS solr_indexer_fingerprint;
+CREATE TABLE  solr_indexer_fingerprint (
+  uid varchar(255) NOT NULL,
+  fingerprint varchar(64) NOT NULL,
+  PRIMARY KEY (uid)
+);
+
+DROP TABLE IF EXISTS solr_indexer_checkpoint;
+CREATE TABLE  solr_indexer_checkpoint (
+  indexer_name varchar(255) NOT NULL,
+  generation bigint default 0 NOT NULL,
+  last_resource_id varchar(255) default NULL,
+  completed boolean default false,
+  PRIMARY KEY (indexer_name)
+);
+
+ALTER TABLE solr_indexer_action ADD COLUMN attempts int default 0 NOT NULL;
+ALTER TABLE solr_indexer_action ADD COLUMN next_attempt timestamp NULL default NULL;
+ALTER TABLE solr_indexer_action ADD COLUMN last_error long varchar;
+ALTER TABLE solr_indexer_action ADD COLUMN lease_owner varchar(255) default NULL;
+ALTER TABLE solr_indexer_action ADD COLUMN lease_expiry timestamp NULL default NULL;
+CREATE INDEX idx_solr_indexer_action_resource ON solr_indexer_action (type_ressource, id_document, id_portlet);
+CREATE INDEX idx_solr_indexer_action_claim ON solr_indexer_action (lease_expiry, next_attempt);
+
+DROP TABLE IF EXISTS solr_indexer_action_failed;
+CREATE TABLE  solr_indexer_action_failed (
+  id_action_failed int default 0 NOT NULL,
+  id_document varchar(255) NOT NULL,
+  id_task int default 0 NOT NULL,
+  type_ressource varchar(255) NOT NULL,
+  id_portlet int default 0 NOT NULL,
+  attempts int default 0 NOT NULL,
+  last_error long varchar,
+  date_failure timestamp NULL default NULL,
+  PRIMARY KEY (id_action_failed)
+);
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.checkpoint;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.solr.client.solrj.SolrServerException;
+
+import fr.paris.lutece.plugins.search.solr.service.SolrIndexerCheckpointService;
+import fr.paris.lutece.plugins.search.solr.service.SolrPlugin;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class SolrIndexerCheckpointBusinessTest extends LuteceTestCase
+{
+    public void testCRUD( )
+    {
+        SolrIndexerCheckpoint checkpoint = new SolrIndexerCheckpoint( );
+        checkpoint.setIndexerName( "strIndexerName" );
+        checkpoint.setGeneration( 1234567890123L );
+
+        SolrIndexerCheckpointHome.removeAll( SolrPlugin._plugin );
+        SolrIndexerCheckpointHome.create( checkpoint, SolrPlugin._plugin );
+        List<SolrIndexerCheckpoint> listCheckpoints = SolrIndexerCheckpointHome.getCheckpointsList( SolrPlugin._plugin );
+        assertEquals( 1, listCheckpoints.size( ) );
+        assertEquals( "strIndexerName", listCheckpoints.get( 0 ).getIndexerName( ) );
+        assertEquals( 1234567890123L, listCheckpoints.get( 0 ).getGeneration( ) );
+        assertNull( listCheckpoints.get( 0 ).getLastResourceId( ) );
+        assertFalse( listCheckpoints.get( 0 ).isCompleted( ) );
+
+        checkpoint.setLastResourceId( "42" );
+        checkpoint.setCompleted( true );
+        SolrIndexerCheckpointHome.update( checkpoint, SolrPlugin._plugin );
+        listCheckpoints = SolrIndexerCheckpointHome.getCheckpointsList( SolrPlugin._plugin );
+        assertEquals( "42", listCheckpoints.get( 0 ).getLastResourceId( ) );
+        assertTrue( listCheckpoints.get( 0 ).isCompleted( ) );
+
+        SolrIndexerCheckpointHome.removeAll( SolrPlugin._plugin );
+        assertTrue( SolrIndexerCheckpointHome.getCheckpointsList( SolrPlugin._plugin ).isEmpty( ) );
+    }
+
+    public void testStartAfterSiteDeletion( ) throws SolrServerException, IOException
+    {
+        if ( !SolrIndexerCheckpointService.isEnabled( ) )
+        {
+            return;
+        }
+
+        AtomicBoolean bCleaned = new AtomicBoolean( );
+        SolrIndexerCheckpointService.start( 1L, Arrays.asList( "indexer1", "indexer2" ), ( ) -> {
+            // the checkpoints of the run are recorded once the documents of the site are removed
+            assertTrue( SolrIndexerCheckpointService.getCheckpoints( ).isEmpty( ) );
+            bCleaned.set( true );
+        } );
+        assertTrue( bCleaned.get( ) );
+        assertEquals( 2, SolrIndexerCheckpointService.getCheckpoints( ).size( ) );
+
+        try
+        {
+            SolrIndexerCheckpointService.start( 2L, Arrays.asList( "indexer1" ), ( ) -> {
+                throw new IOException( "Solr server unavailable" );
+            } );
+            fail( "The failure of the site deletion must be thrown" );
+        }
+        catch( IOException e )
+        {
+            // the next run does not resume the run whose documents have not been removed
+            assertTrue( SolrIndexerCheckpointService.getCheckpoints( ).isEmpty( ) );
+        }
+
+        SolrIndexerCheckpointService.clear( );
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.business.fingerprint;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.search.solr.service.SolrPlugin;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class SolrFingerprintBusinessTest extends LuteceTestCase
+{
+    public void testCRUD( )
+    {
+        Map<String, String> mapFingerprints = new HashMap<>( );
+        mapFingerprints.put( "strUid1", "strFingerprint1" );
+        mapFingerprints.put( "strUid2", "strFingerprint2" );
+
+        SolrFingerprintHome.store( mapFingerprints, SolrPlugin._plugin );
+        Map<String, String> loaded = SolrFingerprintHome.findByUids( Arrays.asList( "strUid1", "strUid2", "strUid3" ), SolrPlugin._plugin );
+        assertEquals( mapFingerprints, loaded );
+
+        mapFingerprints.put( "strUid1", "strFingerprint3" );
+        SolrFingerprintHome.store( mapFingerprints, SolrPlugin._plugin );
+        loaded = SolrFingerprintHome.findByUids( Arrays.asList( "strUid1" ), SolrPlugin._plugin );
+        assertEquals( "strFingerprint3", loaded.get( "strUid1" ) );
+
+        SolrFingerprintHome.remove( Arrays.asList( "strUid1" ), SolrPlugin._plugin );
+        loaded = SolrFingerprintHome.findByUids( mapFingerprints.keySet( ), SolrPlugin._plugin );
+        assertEquals( 1, loaded.size( ) );
+        assertEquals( "strFingerprint2", loaded.get( "strUid2" ) );
+
+        SolrFingerprintHome.remove( Arrays.asList( "strUid2" ), SolrPlugin._plugin );
+        assertTrue( SolrFingerprintHome.findByUids( mapFingerprints.keySet( ), SolrPlugin._plugin ).isEmpty( ) );
+    }
+}
@@ -33,9 +33,13 @@
  */
 package fr.paris.lutece.plugins.search.solr.business.indexeraction;
 
+import java.sql.Timestamp;
 import java.util.List;
 
+import fr.paris.lutece.plugins.search.solr.service.SolrIndexerActionRetryService;
 import fr.paris.lutece.plugins.search.solr.service.SolrPlugin;
+import fr.paris.lutece.portal.business.indexeraction.IndexerAction;
+import fr.paris.lutece.portal.service.search.IndexationService;
 import fr.paris.lutece.test.LuteceTestCase;
 
 public class SolrIndexerActionBusinessTest extends LuteceTestCase
@@ -74,4 +78,125 @@ public class SolrIndexerActionBusinessTest extends LuteceTestCase
         loaded = SolrIndexerActionHome.findByPrimaryKey( action.getIdAction( ), SolrPlugin._plugin );
         assertNull( loaded );
     }
+
+    public void testCoalescing( )
+    {
+        SolrIndexerAction create = newAction( IndexerAction.TASK_CREATE, 1 );
+        SolrIndexerAction modify = newAction( IndexerAction.TASK_MODIFY, 1 );
+        SolrIndexerAction modifyOtherPortlet = newAction( IndexerAction.TASK_MODIFY, 2 );
+
+        SolrIndexerActionHome.create( create, SolrPlugin._plugin );
+        SolrIndexerActionHome.create( modify, SolrPlugin._plugin );
+        SolrIndexerActionHome.create( modifyOtherPortlet, SolrPlugin._plugin );
+
+        // only the last action of a resource and portlet is kept
+        assertNull( SolrIndexerActionHome.findByPrimaryKey( create.getIdAction( ), SolrPlugin._plugin ) );
+        assertNotNull( SolrIndexerActionHome.findByPrimaryKey( modify.getIdAction( ), SolrPlugin._plugin ) );
+        assertNotNull( SolrIndexerActionHome.findByPrimaryKey( modifyOtherPortlet.getIdAction( ), SolrPlugin._plugin ) );
+
+        // a deletion for all the portlets supersedes the actions of every portlet
+        SolrIndexerAction delete = newAction( IndexerAction.TASK_DELETE, IndexationService.ALL_DOCUMENT );
+        SolrIndexerActionHome.create( delete, SolrPlugin._plugin );
+        assertNull( SolrIndexerActionHome.findByPrimaryKey( modify.getIdAction( ), SolrPlugin._plugin ) );
+        assertNull( SolrIndexerActionHome.findByPrimaryKey( modifyOtherPortlet.getIdAction( ), SolrPlugin._plugin ) );
+        assertNotNull( SolrIndexerActionHome.findByPrimaryKey( delete.getIdAction( ), SolrPlugin._plugin ) );
+
+        SolrIndexerActionHome.remove( delete.getIdAction( ), SolrPlugin._plugin );
+    }
+
+    public void testRetry( )
+    {
+        SolrIndexerActionFailedHome.removeAll( SolrPlugin._plugin );
+        SolrIndexerAction action = newAction( IndexerAction.TASK_MODIFY, 1 );
+        SolrIndexerActionHome.create( action, SolrPlugin._plugin );
+
+        // a failed action is postponed
+        assertFalse( SolrIndexerActionRetryService.fail( action, "error 1" ) );
+        SolrIndexerAction loaded = SolrIndexerActionHome.findByPrimaryKey( action.getIdAction( ), SolrPlugin._plugin );
+        assertEquals( 1, loaded.getAttempts( ) );
+        assertEquals( "error 1", loaded.getLastError( ) );
+        assertTrue( loaded.getDateNextAttempt( ).getTime( ) > System.currentTimeMillis( ) );
+
+        // then given up after the maximum number of attempts
+        boolean bGivenUp = false;
+
+        for ( int i = 1; !bGivenUp && ( i < SolrIndexerActionRetryService.getMaxAttempts( ) ); i++ )
+        {
+            bGivenUp = SolrIndexerActionRetryService.fail( loaded, "error" );
+        }
+
+        assertTrue( bGivenUp );
+        assertNull( SolrIndexerActionHome.findByPrimaryKey( action.getIdAction( ), SolrPlugin._plugin ) );
+        assertEquals( 1, SolrIndexerActionFailedHome.getCount( SolrPlugin._plugin ) );
+
+        SolrIndexerActionFailed actionFailed = SolrIndexerActionFailedHome.getList( 10, SolrPlugin._plugin ).get( 0 );
+        assertEquals( action.getIdDocument( ), actionFailed.getIdDocument( ) );
+        assertEquals( SolrIndexerActionRetryService.getMaxAttempts( ), actionFailed.getAttempts( ) );
+        assertNotNull( actionFailed.getDateFailure( ) );
+
+        // a replayed action is queued again
+        SolrIndexerActionRetryService.replay( actionFailed.getIdActionFailed( ) );
+        assertEquals( 0, SolrIndexerActionFailedHome.getCount( SolrPlugin._plugin ) );
+        List<SolrIndexerAction> list = SolrIndexerActionHome.getList( SolrPlugin._plugin );
+        assertEquals( 1, list.size( ) );
+        assertEquals( 0, list.get( 0 ).getAttempts( ) );
+        assertNull( list.get( 0 ).getDateNextAttempt( ) );
+
+        SolrIndexerActionHome.remove( list.get( 0 ).getIdAction( ), SolrPlugin._plugin );
+    }
+
+    public void testRetryDelay( )
+    {
+        assertEquals( 60000L, SolrIndexerActionRetryService.getRetryDelay( 1, 60, 3600 ) );
+        assertEquals( 120000L, SolrIndexerActionRetryService.getRetryDelay( 2, 60, 3600 ) );
+        assertEquals( 480000L, SolrIndexerActionRetryService.getRetryDelay( 4, 60, 3600 ) );
+        assertEquals( 3600000L, SolrIndexerActionRetryService.getRetryDelay( 100, 60, 3600 ) );
+    }
+
+    public void testClaim( )
+    {
+        SolrIndexerActionHome.removeAll( SolrPlugin._plugin );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            SolrIndexerAction action = newAction( IndexerAction.TASK_MODIFY, i );
+            SolrIndexerActionHome.create( action, SolrPlugin._plugin );
+        }
+
+        // the leased actions are not claimed by another node
+        assertEquals( 2, SolrIndexerActionHome.claim( "node1", 2, 60000L, SolrPlugin._plugin ).size( ) );
+        assertEquals( 1, SolrIndexerActionHome.claim( "node2", 2, 60000L, SolrPlugin._plugin ).size( ) );
+        assertTrue( SolrIndexerActionHome.claim( "node3", 2, 60000L, SolrPlugin._plugin ).isEmpty( ) );
+
+        // an expired lease can be claimed again
+        SolrIndexerActionHome.removeAll( SolrPlugin._plugin );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            SolrIndexerAction action = newAction( IndexerAction.TASK_MODIFY, i );
+            SolrIndexerActionHome.create( action, SolrPlugin._plugin );
+        }
+
+        List<SolrIndexerAction> listClaimed = SolrIndexerActionHome.claim( "node1", 10, -60000L, SolrPlugin._plugin );
+        assertEquals( 3, listClaimed.size( ) );
+
+        // the actions waiting for a retry are not claimed
+        SolrIndexerAction action = listClaimed.get( 0 );
+        action.setDateNextAttempt( new Timestamp( System.currentTimeMillis( ) + 60000L ) );
+        SolrIndexerActionHome.update( action, SolrPlugin._plugin );
+        assertEquals( 2, SolrIndexerActionHome.claim( "node2", 10, 60000L, SolrPlugin._plugin ).size( ) );
+
+        SolrIndexerActionHome.removeAll( SolrPlugin._plugin );
+    }
+
+    private SolrIndexerAction newAction( int nIdTask, int nIdPortlet )
+    {
+        SolrIndexerAction action = new SolrIndexerAction( );
+        action.setIdDocument( "strIdDocumentCoalescing" );
+        action.setIdPortlet( nIdPortlet );
+        action.setIdTask( nIdTask );
+        action.setTypeResource( "strTypeResourceCoalescing" );
+
+        return action;
+    }
 }
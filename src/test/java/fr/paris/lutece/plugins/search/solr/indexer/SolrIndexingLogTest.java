@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.util.List;
+
+import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexingEvent.Status;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class SolrIndexingLogTest extends LuteceTestCase
+{
+    public void testEvents( )
+    {
+        SolrIndexingLog.reset( );
+        SolrIndexingLog.add( Status.INDEXED, "PAGE", "uid1", "title1", null );
+        SolrIndexingLog.add( Status.UNCHANGED, "PAGE", "uid2", "title2", null );
+        SolrIndexingLog.add( Status.ERROR, "PAGE", "uid3", "title3", "message" );
+
+        assertEquals( 3, SolrIndexingLog.getEventCount( ) );
+        assertEquals( 1, SolrIndexingLog.getCount( Status.ERROR ) );
+        assertEquals( 0, SolrIndexingLog.getCount( Status.DELETED ) );
+
+        List<SolrIndexingEvent> listEvents = SolrIndexingLog.getEvents( 0, 2 );
+        assertEquals( 2, listEvents.size( ) );
+        assertEquals( "uid3", listEvents.get( 0 ).getUid( ) );
+        assertEquals( "message", listEvents.get( 0 ).getMessage( ) );
+        assertEquals( "uid2", listEvents.get( 1 ).getUid( ) );
+
+        listEvents = SolrIndexingLog.getEvents( 2, 2 );
+        assertEquals( 1, listEvents.size( ) );
+        assertEquals( "uid1", listEvents.get( 0 ).getUid( ) );
+        assertEquals( 1, listEvents.get( 0 ).getSequence( ) );
+
+        SolrIndexingLog.reset( );
+        assertEquals( 0, SolrIndexingLog.getEventCount( ) );
+        assertTrue( SolrIndexingLog.getEvents( 0, 10 ).isEmpty( ) );
+    }
+}
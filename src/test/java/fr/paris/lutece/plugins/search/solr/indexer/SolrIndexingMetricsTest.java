@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.plugins.search.solr.indexer.SolrIndexerMetrics.Stage;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class SolrIndexingMetricsTest extends LuteceTestCase
+{
+    public void testMetrics( )
+    {
+        SolrIndexerMetrics metrics = SolrIndexingMetrics.get( "SolrIndexingMetricsTest" );
+        assertSame( metrics, SolrIndexingMetrics.get( "SolrIndexingMetricsTest" ) );
+        assertTrue( SolrIndexingMetrics.getMetricsList( ).contains( metrics ) );
+
+        metrics.start( );
+        metrics.addDocuments( 10, 2048 );
+        metrics.addDocuments( 5, 1024 );
+        metrics.addErrors( 2 );
+        metrics.addTime( Stage.CONVERSION, TimeUnit.MILLISECONDS.toNanos( 30 ) );
+        metrics.addTime( Stage.CONVERSION, TimeUnit.MILLISECONDS.toNanos( 12 ) );
+        metrics.stop( );
+
+        assertEquals( 15, metrics.getDocuments( ) );
+        assertEquals( 3072, metrics.getBytesSent( ) );
+        assertEquals( 2, metrics.getErrors( ) );
+        assertEquals( 42, metrics.getConversionMillis( ) );
+        assertEquals( 0, metrics.getCommitMillis( ) );
+
+        metrics.start( );
+        assertEquals( 0, metrics.getDocuments( ) );
+        assertEquals( 0, metrics.getConversionMillis( ) );
+    }
+
+    public void testCurrent( )
+    {
+        SolrIndexerMetrics metrics = SolrIndexingMetrics.get( "SolrIndexingMetricsTest" );
+
+        SolrIndexingMetrics.setCurrent( metrics );
+        assertSame( metrics, SolrIndexingMetrics.getCurrent( ) );
+
+        SolrIndexingMetrics.setCurrent( null );
+        assertEquals( SolrIndexingMetrics.NAME_INDEXER_SERVICE, SolrIndexingMetrics.getCurrent( ).getIndexerName( ) );
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.indexer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.solr.common.SolrInputDocument;
+
+import fr.paris.lutece.plugins.search.solr.util.SolrConstants;
+import fr.paris.lutece.portal.service.search.SearchItem;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class SolrPartialUpdateTest extends LuteceTestCase
+{
+    public void testToSolrInputDocument( )
+    {
+        SolrPartialUpdate update = new SolrPartialUpdate( "42_PAGE" );
+        assertTrue( update.isEmpty( ) );
+
+        update.set( SearchItem.FIELD_TITLE, "title" ).add( "tags_string", Arrays.asList( "a", "b" ) ).remove( "categorie", "old" ).set( "summary", null );
+        assertFalse( update.isEmpty( ) );
+
+        SolrInputDocument solrInputDocument = update.toSolrInputDocument( );
+
+        assertEquals( SolrIndexerService.getWebAppName( ) + SolrConstants.CONSTANT_UNDERSCORE + "42_PAGE",
+                solrInputDocument.getFieldValue( SearchItem.FIELD_UID ) );
+        assertEquals( Collections.singletonMap( SolrPartialUpdate.MODIFIER_SET, "title" ), solrInputDocument.getFieldValue( SearchItem.FIELD_TITLE ) );
+        assertEquals( Collections.singletonMap( SolrPartialUpdate.MODIFIER_ADD, Arrays.asList( "a", "b" ) ),
+                solrInputDocument.getFieldValue( "tags_string" ) );
+        assertEquals( Collections.singletonMap( SolrPartialUpdate.MODIFIER_REMOVE, "old" ), solrInputDocument.getFieldValue( "categorie" ) );
+        assertEquals( Collections.singletonMap( SolrPartialUpdate.MODIFIER_SET, null ), solrInputDocument.getFieldValue( "summary" ) );
+
+        // with the generation strategy, the generation is updated with the document
+        Map<?, ?> mapGeneration = (Map<?, ?>) solrInputDocument.getFieldValue( SolrItem.FIELD_INDEXING_GENERATION );
+
+        if ( SolrIndexerService.isGenerationStrategy( ) )
+        {
+            assertEquals( 1, mapGeneration.size( ) );
+            assertTrue( mapGeneration.get( SolrPartialUpdate.MODIFIER_SET ) instanceof Long );
+        }
+        else
+        {
+            assertNull( mapGeneration );
+        }
+    }
+
+    public void testLastModifierWins( )
+    {
+        SolrPartialUpdate update = new SolrPartialUpdate( "42_PAGE" );
+        update.add( "tags_string", "a" ).set( "tags_string", "b" ).set( SolrItem.FIELD_INDEXING_GENERATION, 7L );
+
+        SolrInputDocument solrInputDocument = update.toSolrInputDocument( );
+
+        assertEquals( Collections.singletonMap( SolrPartialUpdate.MODIFIER_SET, "b" ), solrInputDocument.getFieldValue( "tags_string" ) );
+        // an explicit generation is kept
+        assertEquals( Collections.singletonMap( SolrPartialUpdate.MODIFIER_SET, 7L ), solrInputDocument.getFieldValue( SolrItem.FIELD_INDEXING_GENERATION ) );
+    }
+}
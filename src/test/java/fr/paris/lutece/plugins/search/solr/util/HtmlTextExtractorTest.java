@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.search.solr.util;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class HtmlTextExtractorTest extends LuteceTestCase
+{
+
+    public void testExtract( )
+    {
+        String content = "<html><head><title>Title</title><style>p { color: red; }</style></head>"
+                + "<body><div><p>Hello   World !</p><script type=\"text/javascript\">var a = '<p>';</script><p>Goodbye</p></div></body></html>";
+        assertEquals( "Hello World ! Goodbye", HtmlTextExtractor.extract( content, -1 ) );
+    }
+
+    public void testExtractEntities( )
+    {
+        assertEquals( "été & <b> é", HtmlTextExtractor.extract( "<p>&eacute;t&#233; &amp; &lt;b&gt; &#xE9;</p>", -1 ) );
+        assertEquals( "a & b &unknown;", HtmlTextExtractor.extract( "a & b &unknown;", -1 ) );
+        assertEquals( "a & b <", HtmlTextExtractor.extract( "a & <b>b</b> &lt;", -1 ) );
+    }
+
+    public void testExtractMarkup( )
+    {
+        assertEquals( "a < b bold", HtmlTextExtractor.extract( "<!-- comment --><a href=\"x>y\" title='z'>a < b</a> <b>bold</b>", -1 ) );
+    }
+
+    public void testExtractMaxChars( )
+    {
+        assertEquals( "Hello", HtmlTextExtractor.extract( "<p>Hello World !</p>", 5 ) );
+    }
+}